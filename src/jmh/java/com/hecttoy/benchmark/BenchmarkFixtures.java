@@ -0,0 +1,86 @@
+package com.hecttoy.benchmark;
+
+import com.hecttoy.auth.entity.Role;
+import com.hecttoy.auth.entity.User;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Builds the token components outside of Spring, wired the same way the application context does.
+ */
+final class BenchmarkFixtures {
+
+    static final String USERNAME = "johndoe";
+    static final String EMAIL = "john@example.com";
+
+    private BenchmarkFixtures() {
+    }
+
+    static com.hecttoy.authserver.security.JwtTokenProvider authServerProvider(boolean cacheEnabled) throws Exception {
+        com.hecttoy.authserver.security.JwtKeyRing keyRing = new com.hecttoy.authserver.security.JwtKeyRing();
+        ReflectionTestUtils.setField(keyRing, "keyStoreLocation", "");
+        ReflectionTestUtils.setField(keyRing, "ephemeralKey", true);
+        keyRing.init();
+
+        com.hecttoy.authserver.security.VerifiedTokenCache cache = new com.hecttoy.authserver.security.VerifiedTokenCache();
+        ReflectionTestUtils.setField(cache, "enabled", cacheEnabled);
+        ReflectionTestUtils.setField(cache, "maxSize", 10000);
+
+        com.hecttoy.authserver.security.JwtTokenProvider provider = new com.hecttoy.authserver.security.JwtTokenProvider();
+        ReflectionTestUtils.setField(provider, "jwtAccessTokenExpiration", 900000L);
+        ReflectionTestUtils.setField(provider, "jwtRefreshTokenExpiration", 604800000L);
+        ReflectionTestUtils.setField(provider, "verifiedTokenCache", cache);
+        ReflectionTestUtils.setField(provider, "jwtKeyRing", keyRing);
+        provider.init();
+        return provider;
+    }
+
+    static Map<String, Object> authServerClaims() {
+        return Map.of("id", 1L, "email", EMAIL, "roles", List.of("USER"), "tv", 0L);
+    }
+
+    static com.hecttoy.authserver.security.TokenVersionCache authServerTokenVersionCache() {
+        com.hecttoy.authserver.repository.UserRepository userRepository =
+            Mockito.mock(com.hecttoy.authserver.repository.UserRepository.class);
+        Mockito.when(userRepository.findTokenVersionById(1L)).thenReturn(Optional.of(0L));
+
+        com.hecttoy.authserver.security.TokenVersionCache cache = new com.hecttoy.authserver.security.TokenVersionCache();
+        ReflectionTestUtils.setField(cache, "userRepository", userRepository);
+        ReflectionTestUtils.setField(cache, "ttlMillis", 5000L);
+        ReflectionTestUtils.setField(cache, "maxSize", 100000);
+        return cache;
+    }
+
+    static com.hecttoy.auth.security.JwtTokenProvider authProvider(boolean cacheEnabled) throws Exception {
+        com.hecttoy.auth.security.JwtKeyRing keyRing = new com.hecttoy.auth.security.JwtKeyRing();
+        ReflectionTestUtils.setField(keyRing, "keyStoreLocation", "");
+        ReflectionTestUtils.setField(keyRing, "ephemeralKey", true);
+        keyRing.init();
+
+        com.hecttoy.auth.security.VerifiedTokenCache cache = new com.hecttoy.auth.security.VerifiedTokenCache();
+        ReflectionTestUtils.setField(cache, "enabled", cacheEnabled);
+        ReflectionTestUtils.setField(cache, "maxSize", 10000);
+
+        com.hecttoy.auth.security.JwtTokenProvider provider = new com.hecttoy.auth.security.JwtTokenProvider(cache, keyRing);
+        ReflectionTestUtils.setField(provider, "jwtExpiration", 3600L);
+        ReflectionTestUtils.setField(provider, "refreshTokenExpiration", 604800L);
+        provider.init();
+        return provider;
+    }
+
+    static User authUser() {
+        return User.builder()
+            .id(1L)
+            .name("John Doe")
+            .email(EMAIL)
+            .password("{noop}unused")
+            .enabled(true)
+            .roles(Set.of(Role.builder().id(1L).name("USER").build()))
+            .build();
+    }
+}
@@ -0,0 +1,53 @@
+package com.hecttoy.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs every benchmark once per thread count (1, 2, 4, ... up to the core count) with the GC
+ * profiler attached, writing one JSON result file per thread count to {@code jmh.resultDir}.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException {
+        String include = System.getProperty("jmh.include", ".*");
+        int forks = Integer.getInteger("jmh.forks", 1);
+        int maxThreads = Integer.getInteger("jmh.maxThreads", 0);
+        if (maxThreads <= 0) {
+            maxThreads = Runtime.getRuntime().availableProcessors();
+        }
+
+        File resultDir = new File(System.getProperty("jmh.resultDir", "target/jmh"));
+        resultDir.mkdirs();
+
+        for (int threads : threadCounts(maxThreads)) {
+            Options options = new OptionsBuilder()
+                .include("com\\.hecttoy\\.benchmark\\..*" + include)
+                .threads(threads)
+                .forks(forks)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(new File(resultDir, "results-t" + threads + ".json").getPath())
+                .build();
+
+            new Runner(options).run();
+        }
+    }
+
+    static List<Integer> threadCounts(int maxThreads) {
+        List<Integer> counts = new ArrayList<>();
+        for (int threads = 1; threads < maxThreads; threads *= 2) {
+            counts.add(threads);
+        }
+        counts.add(maxThreads);
+        return counts;
+    }
+}
@@ -0,0 +1,103 @@
+package com.hecttoy.benchmark;
+
+import com.hecttoy.auth.repository.UserRepository;
+import jakarta.servlet.FilterChain;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full {@code doFilter} pass of both JWT filters against a mock authenticated {@code GET /todos}.
+ * The {@code auth} filter's principal cache is backed by a mocked repository, so only the in-process
+ * cost is measured.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtAuthenticationFilterBenchmark {
+
+    private static final FilterChain NO_OP_CHAIN = (request, response) -> { };
+
+    @State(Scope.Benchmark)
+    public static class Filters {
+
+        @Param({"true", "false"})
+        public boolean cacheEnabled;
+
+        com.hecttoy.authserver.security.JwtAuthenticationFilter authServerFilter;
+        com.hecttoy.auth.security.JwtAuthenticationFilter authFilter;
+        String authServerToken;
+        String authToken;
+
+        @Setup
+        public void setUp() throws Exception {
+            com.hecttoy.authserver.security.JwtTokenProvider authServerProvider = BenchmarkFixtures.authServerProvider(cacheEnabled);
+            authServerFilter = new com.hecttoy.authserver.security.JwtAuthenticationFilter(
+                authServerProvider, new com.hecttoy.authserver.security.AccessTokenDenylist(),
+                BenchmarkFixtures.authServerTokenVersionCache());
+            authServerToken = authServerProvider.generateAccessToken(BenchmarkFixtures.USERNAME, BenchmarkFixtures.authServerClaims());
+
+            com.hecttoy.auth.security.JwtTokenProvider authProvider = BenchmarkFixtures.authProvider(cacheEnabled);
+            UserRepository userRepository = Mockito.mock(UserRepository.class);
+            Mockito.when(userRepository.findWithRolesByEmail(BenchmarkFixtures.EMAIL)).thenReturn(Optional.of(BenchmarkFixtures.authUser()));
+            com.hecttoy.auth.security.PrincipalCache principalCache = new com.hecttoy.auth.security.PrincipalCache(userRepository);
+            ReflectionTestUtils.setField(principalCache, "ttlMillis", 30000L);
+            ReflectionTestUtils.setField(principalCache, "maxSize", 10000);
+            authFilter = new com.hecttoy.auth.security.JwtAuthenticationFilter(authProvider, principalCache);
+            authToken = authProvider.generateAccessToken(BenchmarkFixtures.authUser());
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Requests {
+
+        MockHttpServletRequest authServerRequest;
+        MockHttpServletRequest authRequest;
+        MockHttpServletResponse response;
+
+        @Setup
+        public void setUp(Filters filters) {
+            authServerRequest = request(filters.authServerToken);
+            authRequest = request(filters.authToken);
+            response = new MockHttpServletResponse();
+        }
+
+        private static MockHttpServletRequest request(String token) {
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/todos");
+            request.setContextPath("/api/v1");
+            request.setServletPath("/todos");
+            request.addHeader("Authorization", "Bearer " + token);
+            return request;
+        }
+    }
+
+    @Benchmark
+    public void authServerFilter(Filters filters, Requests requests) throws Exception {
+        filters.authServerFilter.doFilter(requests.authServerRequest, requests.response, NO_OP_CHAIN);
+        SecurityContextHolder.clearContext();
+    }
+
+    @Benchmark
+    public void authFilter(Filters filters, Requests requests) throws Exception {
+        filters.authFilter.doFilter(requests.authRequest, requests.response, NO_OP_CHAIN);
+        SecurityContextHolder.clearContext();
+    }
+}
@@ -0,0 +1,88 @@
+package com.hecttoy.benchmark;
+
+import com.hecttoy.auth.entity.User;
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token issuance and verification for both providers ({@code authserver} and {@code auth}).
+ * Verification goes through the uncached parser; {@code verifyToken} is measured with the
+ * verified-token cache enabled.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtTokenProviderBenchmark {
+
+    private com.hecttoy.authserver.security.JwtTokenProvider authServerProvider;
+    private com.hecttoy.auth.security.JwtTokenProvider authProvider;
+    private Map<String, Object> authServerClaims;
+    private User authUser;
+    private String authServerToken;
+    private String authToken;
+
+    @Setup
+    public void setUp() throws Exception {
+        authServerProvider = BenchmarkFixtures.authServerProvider(true);
+        authProvider = BenchmarkFixtures.authProvider(true);
+        authServerClaims = BenchmarkFixtures.authServerClaims();
+        authUser = BenchmarkFixtures.authUser();
+        authServerToken = authServerProvider.generateAccessToken(BenchmarkFixtures.USERNAME, authServerClaims);
+        authToken = authProvider.generateAccessToken(authUser);
+    }
+
+    @Benchmark
+    public String authServerGenerateAccessToken() {
+        return authServerProvider.generateAccessToken(BenchmarkFixtures.USERNAME, authServerClaims);
+    }
+
+    @Benchmark
+    public boolean authServerValidateToken() {
+        return authServerProvider.validateToken(authServerToken);
+    }
+
+    @Benchmark
+    public Claims authServerGetAllClaimsFromToken() {
+        return authServerProvider.getAllClaimsFromToken(authServerToken);
+    }
+
+    @Benchmark
+    public Object authServerVerifyTokenCached() {
+        return authServerProvider.verifyToken(authServerToken);
+    }
+
+    @Benchmark
+    public String authGenerateAccessToken() {
+        return authProvider.generateAccessToken(authUser);
+    }
+
+    @Benchmark
+    public boolean authValidateToken() {
+        return authProvider.validateToken(authToken);
+    }
+
+    @Benchmark
+    public String authGetEmailFromToken() {
+        return authProvider.getEmailFromToken(authToken);
+    }
+
+    @Benchmark
+    public Object authVerifyTokenCached() {
+        return authProvider.verifyToken(authToken);
+    }
+}
@@ -0,0 +1,48 @@
+package com.hecttoy.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram and error count for one endpoint within one scenario run.
+ */
+public class EndpointStats {
+
+    private final String endpoint;
+    private final Histogram latencies = new ConcurrentHistogram(TimeUnit.MINUTES.toNanos(1), 3);
+    private final LongAdder errors = new LongAdder();
+
+    public EndpointStats(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    public void record(long latencyNanos, boolean success) {
+        latencies.recordValue(Math.min(latencyNanos, latencies.getHighestTrackableValue()));
+        if (!success) {
+            errors.increment();
+        }
+    }
+
+    public LoadTestReport.EndpointResult toResult(double elapsedSeconds) {
+        long count = latencies.getTotalCount();
+        return new LoadTestReport.EndpointResult(
+            endpoint,
+            count,
+            errors.sum(),
+            count / elapsedSeconds,
+            new LoadTestReport.Latency(
+                millis(latencies.getValueAtPercentile(50.0)),
+                millis(latencies.getValueAtPercentile(99.0)),
+                millis(latencies.getValueAtPercentile(99.9)),
+                millis(latencies.getMaxValue())
+            )
+        );
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,99 @@
+package com.hecttoy.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Thin JSON-over-HTTP client that times every call and files it under its endpoint label.
+ */
+public class LoadClient {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+        .connectTimeout(Duration.ofSeconds(5))
+        .build();
+
+    private final String baseUrl;
+
+    private volatile Map<String, EndpointStats> stats = new ConcurrentHashMap<>();
+
+    public LoadClient(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
+    /**
+     * Starts a fresh set of per-endpoint statistics and returns the previous one.
+     */
+    public Map<String, EndpointStats> resetStats() {
+        Map<String, EndpointStats> previous = stats;
+        stats = new ConcurrentHashMap<>();
+        return previous;
+    }
+
+    public Response call(String method, String path, String label, Object body, String accessToken, int expectedStatus)
+            throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+            .timeout(Duration.ofSeconds(30))
+            .header("Content-Type", "application/json")
+            .method(method, body != null
+                ? HttpRequest.BodyPublishers.ofByteArray(MAPPER.writeValueAsBytes(body))
+                : HttpRequest.BodyPublishers.noBody());
+        if (accessToken != null) {
+            request.header("Authorization", "Bearer " + accessToken);
+        }
+
+        long start = System.nanoTime();
+        HttpResponse<byte[]> response;
+        try {
+            response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+        } catch (IOException e) {
+            record(method, label, System.nanoTime() - start, false);
+            throw e;
+        }
+        record(method, label, System.nanoTime() - start, response.statusCode() == expectedStatus);
+
+        return new Response(response.statusCode(), response.body());
+    }
+
+    /**
+     * Reads an actuator metric without counting the request in the statistics.
+     *
+     * @return the metric's measurements by statistic (COUNT, TOTAL_TIME, MAX...), or an empty map
+     * if the server does not expose it or, as the endpoint is admin-only, refuses the anonymous call
+     */
+    public Map<String, Double> metric(String name) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = httpClient.send(
+            HttpRequest.newBuilder(URI.create(baseUrl + "/actuator/metrics/" + name)).timeout(Duration.ofSeconds(5)).build(),
+            HttpResponse.BodyHandlers.ofByteArray());
+        Map<String, Double> measurements = new HashMap<>();
+        if (response.statusCode() == 200) {
+            for (JsonNode measurement : MAPPER.readTree(response.body()).path("measurements")) {
+                measurements.put(measurement.path("statistic").asText(), measurement.path("value").asDouble());
+            }
+        }
+        return measurements;
+    }
+
+    private void record(String method, String label, long latencyNanos, boolean success) {
+        String endpoint = method + " " + label;
+        stats.computeIfAbsent(endpoint, EndpointStats::new).record(latencyNanos, success);
+    }
+
+    public record Response(int status, byte[] body) {
+
+        public JsonNode data() throws IOException {
+            return MAPPER.readTree(body).path("data");
+        }
+    }
+}
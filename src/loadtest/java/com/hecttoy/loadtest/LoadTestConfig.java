@@ -0,0 +1,31 @@
+package com.hecttoy.loadtest;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Harness settings, read from {@code loadtest.*} system properties.
+ */
+public record LoadTestConfig(String baseUrl, List<String> scenarios, int concurrency, int warmupSeconds,
+                             int durationSeconds, int users, String output, List<String> appArgs) {
+
+    public static LoadTestConfig fromSystemProperties() {
+        return new LoadTestConfig(
+            System.getProperty("loadtest.baseUrl", ""),
+            split(System.getProperty("loadtest.scenarios", "register,login,refresh,todos,stuffing"), ","),
+            Integer.getInteger("loadtest.concurrency", 16),
+            Integer.getInteger("loadtest.warmupSeconds", 5),
+            Integer.getInteger("loadtest.durationSeconds", 30),
+            Integer.getInteger("loadtest.users", 50),
+            System.getProperty("loadtest.output", "target/loadtest/results.json"),
+            split(System.getProperty("loadtest.appArgs", "--logging.level.root=WARN,--logging.level.com.hecttoy=OFF"), ",")
+        );
+    }
+
+    private static List<String> split(String value, String separator) {
+        return Arrays.stream(value.split(separator))
+            .map(String::trim)
+            .filter(part -> !part.isEmpty())
+            .toList();
+    }
+}
@@ -0,0 +1,29 @@
+package com.hecttoy.loadtest;
+
+import java.util.List;
+
+/**
+ * Machine-readable output of a harness run, serialized as JSON.
+ */
+public record LoadTestReport(String baseUrl, String startedAt, String javaVersion, List<String> appArgs,
+                             int concurrency, int warmupSeconds, int durationSeconds, int availableProcessors,
+                             List<ScenarioResult> scenarios) {
+
+    public record ScenarioResult(String name, double elapsedSeconds, List<EndpointResult> endpoints,
+                                 ConnectionPool connectionPool) {
+    }
+
+    /**
+     * JDBC pool activity during the measured window, from the server's {@code hikaricp.*} metrics;
+     * {@code null} when the server does not expose them. {@code wait} is the time spent waiting
+     * for a connection, {@code held} the time a connection stayed checked out.
+     */
+    public record ConnectionPool(long acquisitions, double meanWaitMs, double maxWaitMs, double meanHeldMs) {
+    }
+
+    public record EndpointResult(String endpoint, long count, long errors, double throughputPerSecond, Latency latencyMs) {
+    }
+
+    public record Latency(double p50, double p99, double p999, double max) {
+    }
+}
@@ -0,0 +1,232 @@
+package com.hecttoy.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hecttoy.authserver.AuthServerApplication;
+import io.micrometer.core.instrument.Measurement;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Boots the authserver application on the {@code h2} profile (unless {@code loadtest.baseUrl}
+ * points at a running instance), seeds users, drives each scenario with a fixed number of
+ * concurrent workers, and writes per-endpoint throughput and latency percentiles as JSON.
+ */
+public class LoadTestRunner {
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.fromSystemProperties();
+
+        ConfigurableApplicationContext context = null;
+        String baseUrl = config.baseUrl();
+        if (baseUrl.isBlank()) {
+            // Passed as arguments so they win over application-h2.yml. Every simulated user shares
+            // one IP, so the login rate limit would reject most of the load
+            List<String> appArgs = new ArrayList<>(List.of("--server.port=0", "--spring.h2.console.enabled=false",
+                "--app.loginRateLimitEnabled=false"));
+            appArgs.addAll(config.appArgs());
+            context = new SpringApplicationBuilder(AuthServerApplication.class)
+                .profiles("h2")
+                .run(appArgs.toArray(String[]::new));
+            int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+            baseUrl = "http://localhost:" + port + context.getEnvironment().getProperty("server.servlet.context-path", "");
+        }
+
+        // /actuator/metrics needs an admin token, so read the booted instance's registry directly
+        MeterRegistry registry = context != null ? context.getBean(MeterRegistry.class) : null;
+        try {
+            LoadTestReport report = run(config, baseUrl, registry);
+            File output = new File(config.output());
+            output.getParentFile().mkdirs();
+            new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(output, report);
+            printSummary(report);
+            System.out.println("Results written to " + output.getAbsolutePath());
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    private static LoadTestReport run(LoadTestConfig config, String baseUrl, MeterRegistry registry) throws Exception {
+        String startedAt = Instant.now().toString();
+        LoadClient client = new LoadClient(baseUrl);
+        MetricSource metrics = registry != null ? name -> measurements(registry, name) : client::metric;
+        List<SeedUser> users = seedUsers(client, config);
+
+        List<LoadTestReport.ScenarioResult> results = new ArrayList<>();
+        for (String name : config.scenarios()) {
+            results.add(runScenario(name, Scenarios.byName(name), client, metrics, users, config));
+        }
+
+        return new LoadTestReport(baseUrl, startedAt, Runtime.version().toString(), config.appArgs(),
+            config.concurrency(), config.warmupSeconds(), config.durationSeconds(),
+            Runtime.getRuntime().availableProcessors(), results);
+    }
+
+    private static List<SeedUser> seedUsers(LoadClient client, LoadTestConfig config) throws Exception {
+        List<SeedUser> users = new ArrayList<>();
+        ExecutorService pool = Executors.newFixedThreadPool(config.concurrency());
+        try {
+            List<Future<SeedUser>> futures = new ArrayList<>();
+            for (int i = 0; i < config.users(); i++) {
+                futures.add(pool.submit(() -> seedUser(client)));
+            }
+
+            for (Future<SeedUser> future : futures) {
+                users.add(future.get());
+            }
+            return users;
+        } finally {
+            pool.shutdownNow();
+            client.resetStats();
+        }
+    }
+
+    private static SeedUser seedUser(LoadClient client) throws Exception {
+        SeedUser user = Scenarios.newUser("seed");
+        LoadClient.Response response = Scenarios.register(client, user);
+        if (response.status() != 201) {
+            throw new IllegalStateException("Seeding failed with HTTP " + response.status());
+        }
+        return user;
+    }
+
+    private static LoadTestReport.ScenarioResult runScenario(String name, Scenario scenario, LoadClient client,
+                                                             MetricSource metrics, List<SeedUser> users,
+                                                             LoadTestConfig config) throws Exception {
+        System.out.printf("Running %s: %d workers, %ds warmup, %ds measured%n",
+            name, config.concurrency(), config.warmupSeconds(), config.durationSeconds());
+
+        List<Scenario.Worker> workers = new ArrayList<>();
+        for (int i = 0; i < config.concurrency(); i++) {
+            workers.add(scenario.newWorker(client, users.get(i % users.size())));
+        }
+
+        drive(workers, config.warmupSeconds());
+        client.resetStats();
+
+        PoolSnapshot poolBefore = PoolSnapshot.take(metrics);
+        long start = System.nanoTime();
+        drive(workers, config.durationSeconds());
+        double elapsedSeconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        Map<String, EndpointStats> stats = client.resetStats();
+        LoadTestReport.ConnectionPool connectionPool = PoolSnapshot.between(poolBefore, PoolSnapshot.take(metrics));
+
+        List<LoadTestReport.EndpointResult> endpoints = stats.values().stream()
+            .map(endpoint -> endpoint.toResult(elapsedSeconds))
+            .sorted(Comparator.comparing(LoadTestReport.EndpointResult::endpoint))
+            .toList();
+        return new LoadTestReport.ScenarioResult(name, elapsedSeconds, endpoints, connectionPool);
+    }
+
+    private static void drive(List<Scenario.Worker> workers, int seconds) throws InterruptedException {
+        if (seconds <= 0) {
+            return;
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        ExecutorService pool = Executors.newFixedThreadPool(workers.size());
+        for (Scenario.Worker worker : workers) {
+            pool.execute(() -> {
+                while (System.nanoTime() < deadline) {
+                    try {
+                        worker.iteration();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    } catch (Exception e) {
+                        // Already counted as an error by LoadClient; keep the worker going
+                    }
+                }
+            });
+        }
+        pool.shutdown();
+        if (!pool.awaitTermination(seconds + 60L, TimeUnit.SECONDS)) {
+            pool.shutdownNow();
+        }
+    }
+
+    private static void printSummary(LoadTestReport report) {
+        System.out.printf("%n%-10s %-22s %10s %8s %10s %9s %9s %9s%n",
+            "scenario", "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p99.9 ms");
+        for (LoadTestReport.ScenarioResult scenario : report.scenarios()) {
+            for (LoadTestReport.EndpointResult endpoint : scenario.endpoints()) {
+                System.out.printf("%-10s %-22s %10d %8d %10.1f %9.2f %9.2f %9.2f%n",
+                    scenario.name(), endpoint.endpoint(), endpoint.count(), endpoint.errors(),
+                    endpoint.throughputPerSecond(), endpoint.latencyMs().p50(),
+                    endpoint.latencyMs().p99(), endpoint.latencyMs().p999());
+            }
+            LoadTestReport.ConnectionPool pool = scenario.connectionPool();
+            if (pool != null) {
+                System.out.printf("%-10s jdbc pool: %d acquisitions, wait mean %.2f ms / max %.2f ms, held mean %.2f ms%n",
+                    scenario.name(), pool.acquisitions(), pool.meanWaitMs(), pool.maxWaitMs(), pool.meanHeldMs());
+            }
+        }
+    }
+
+    /**
+     * Measurements of a meter by statistic, aggregated across its tags the way the actuator
+     * metrics endpoint does.
+     */
+    private static Map<String, Double> measurements(MeterRegistry registry, String name) {
+        Map<String, Double> measurements = new HashMap<>();
+        for (Meter meter : registry.find(name).meters()) {
+            for (Measurement measurement : meter.measure()) {
+                String statistic = measurement.getStatistic().name();
+                measurements.merge(statistic, measurement.getValue(), "MAX".equals(statistic) ? Math::max : Double::sum);
+            }
+        }
+        return measurements;
+    }
+
+    /**
+     * A meter's measurements by statistic (COUNT, TOTAL_TIME, MAX...), empty if not available.
+     */
+    private interface MetricSource {
+
+        Map<String, Double> read(String name) throws Exception;
+    }
+
+    /**
+     * Cumulative {@code hikaricp.connections.acquire} and {@code .usage} timers at one instant.
+     */
+    private record PoolSnapshot(double acquisitions, double waitSeconds, double maxWaitSeconds, double heldSeconds) {
+
+        static PoolSnapshot take(MetricSource metrics) throws Exception {
+            Map<String, Double> acquire = metrics.read("hikaricp.connections.acquire");
+            Map<String, Double> usage = metrics.read("hikaricp.connections.usage");
+            if (acquire.isEmpty() || usage.isEmpty()) {
+                return null;
+            }
+            return new PoolSnapshot(acquire.get("COUNT"), acquire.get("TOTAL_TIME"), acquire.get("MAX"),
+                usage.get("TOTAL_TIME"));
+        }
+
+        static LoadTestReport.ConnectionPool between(PoolSnapshot before, PoolSnapshot after) {
+            if (before == null || after == null) {
+                return null;
+            }
+            long acquisitions = (long) (after.acquisitions - before.acquisitions);
+            double perAcquisition = acquisitions == 0 ? 0 : 1000.0 / acquisitions;
+            // MAX is Micrometer's rolling window maximum, not a cumulative value
+            return new LoadTestReport.ConnectionPool(acquisitions,
+                (after.waitSeconds - before.waitSeconds) * perAcquisition,
+                after.maxWaitSeconds * 1000,
+                (after.heldSeconds - before.heldSeconds) * perAcquisition);
+        }
+    }
+}
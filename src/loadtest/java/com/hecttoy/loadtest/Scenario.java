@@ -0,0 +1,16 @@
+package com.hecttoy.loadtest;
+
+/**
+ * A scripted flow. Each load worker gets its own {@link Worker}, prepared before the measured window.
+ */
+@FunctionalInterface
+public interface Scenario {
+
+    Worker newWorker(LoadClient client, SeedUser user) throws Exception;
+
+    @FunctionalInterface
+    interface Worker {
+
+        void iteration() throws Exception;
+    }
+}
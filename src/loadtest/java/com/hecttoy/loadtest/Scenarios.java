@@ -0,0 +1,99 @@
+package com.hecttoy.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Built-in scenarios against {@code AuthController} and {@code TodoController}.
+ */
+public final class Scenarios {
+
+    private static final String RUN_ID = Long.toString(System.currentTimeMillis(), 36);
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    private Scenarios() {
+    }
+
+    public static Scenario byName(String name) {
+        return switch (name) {
+            case "register" -> Scenarios::registerStorm;
+            case "login" -> Scenarios::login;
+            case "refresh" -> Scenarios::refreshLoop;
+            case "todos" -> Scenarios::todoCrud;
+            case "stuffing" -> Scenarios::credentialStuffing;
+            default -> throw new IllegalArgumentException("Unknown scenario: " + name);
+        };
+    }
+
+    public static SeedUser newUser(String prefix) {
+        String username = prefix + "-" + RUN_ID + "-" + SEQUENCE.incrementAndGet();
+        return new SeedUser(username, username + "@loadtest.local", "LoadTest123!");
+    }
+
+    public static LoadClient.Response register(LoadClient client, SeedUser user) throws Exception {
+        return client.call("POST", "/auth/register", "/auth/register", Map.of(
+            "username", user.username(),
+            "email", user.email(),
+            "password", user.password(),
+            "firstName", "Load",
+            "lastName", "Test"
+        ), null, 201);
+    }
+
+    private static JsonNode login(LoadClient client, SeedUser user, int expectedStatus) throws Exception {
+        return client.call("POST", "/auth/login", "/auth/login",
+            Map.of("email", user.email(), "password", user.password()), null, expectedStatus).data();
+    }
+
+    private static Scenario.Worker registerStorm(LoadClient client, SeedUser user) {
+        return () -> register(client, newUser("reg"));
+    }
+
+    private static Scenario.Worker login(LoadClient client, SeedUser user) {
+        return () -> login(client, user, 200);
+    }
+
+    private static Scenario.Worker refreshLoop(LoadClient client, SeedUser user) throws Exception {
+        String[] refreshToken = {login(client, user, 200).path("refreshToken").asText()};
+        return () -> {
+            LoadClient.Response response = client.call("POST", "/auth/refresh", "/auth/refresh",
+                Map.of("refreshToken", refreshToken[0]), null, 200);
+            if (response.status() == 200) {
+                refreshToken[0] = response.data().path("refreshToken").asText(refreshToken[0]);
+            } else {
+                refreshToken[0] = login(client, user, 200).path("refreshToken").asText();
+            }
+        };
+    }
+
+    private static Scenario.Worker todoCrud(LoadClient client, SeedUser user) throws Exception {
+        String[] accessToken = {login(client, user, 200).path("accessToken").asText()};
+        return () -> {
+            LoadClient.Response created = client.call("POST", "/todos", "/todos",
+                Map.of("title", "load test", "description", "created by the load harness", "priority", 1),
+                accessToken[0], 201);
+            if (created.status() == 401) {
+                accessToken[0] = login(client, user, 200).path("accessToken").asText();
+                return;
+            }
+            long id = created.data().path("id").asLong();
+
+            client.call("GET", "/todos", "/todos", null, accessToken[0], 200);
+            client.call("GET", "/todos/" + id, "/todos/{id}", null, accessToken[0], 200);
+            client.call("PUT", "/todos/" + id, "/todos/{id}", Map.of("completed", true), accessToken[0], 200);
+            client.call("DELETE", "/todos/" + id, "/todos/{id}", null, accessToken[0], 200);
+        };
+    }
+
+    private static Scenario.Worker credentialStuffing(LoadClient client, SeedUser user) {
+        SeedUser wrongPassword = new SeedUser(user.username(), user.email(), "Wrong-" + user.password());
+        boolean[] unknownNext = {false};
+        return () -> {
+            SeedUser attempt = unknownNext[0] ? newUser("ghost") : wrongPassword;
+            unknownNext[0] = !unknownNext[0];
+            login(client, attempt, 401);
+        };
+    }
+}
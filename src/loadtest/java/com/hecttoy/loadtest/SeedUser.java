@@ -0,0 +1,4 @@
+package com.hecttoy.loadtest;
+
+public record SeedUser(String username, String email, String password) {
+}
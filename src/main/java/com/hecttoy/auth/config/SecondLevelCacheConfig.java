@@ -0,0 +1,135 @@
+package com.hecttoy.auth.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import com.hecttoy.auth.repository.RoleRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Caché de segundo nivel de Hibernate (JCache sobre Caffeine, en proceso) para los roles, la
+ * colección {@code User.roles} y las consultas marcadas como cacheables, como
+ * {@code RoleRepository.findByName}. Cada región tiene un tamaño máximo
+ * ({@code second-level-cache.max-size}) y un TTL ({@code second-level-cache.ttl}, ms).
+ *
+ * <p>Las regiones son READ_WRITE: los cambios hechos a través de JPA las invalidan al confirmar la
+ * transacción, y cualquier escritura en una tabla invalida las consultas cacheadas que la leen. Los
+ * cambios hechos por fuera de JPA (SQL directo u otra aplicación) solo se ven al vencer el TTL.
+ */
+@Configuration
+@Slf4j
+public class SecondLevelCacheConfig {
+
+    public static final String ROLES_REGION = "roles";
+    public static final String USER_ROLES_REGION = "user-roles";
+
+    private static final List<String> REGIONS = List.of(
+        ROLES_REGION, USER_ROLES_REGION, RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME);
+
+    @Value("${second-level-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${second-level-cache.max-size:10000}")
+    private long maxSize;
+
+    @Value("${second-level-cache.ttl:600000}")
+    private long ttlMillis;
+
+    @Bean(destroyMethod = "close")
+    public CacheManager secondLevelCacheManager() {
+        // Una URI propia por contexto: el proveedor comparte los CacheManager con la misma URI
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+            .getCacheManager(URI.create("second-level-cache-" + UUID.randomUUID()), getClass().getClassLoader());
+
+        for (String region : REGIONS) {
+            CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+            configuration.setMaximumSize(OptionalLong.of(maxSize));
+            configuration.setExpireAfterWrite(OptionalLong.of(TimeUnit.MILLISECONDS.toNanos(ttlMillis)));
+            cacheManager.createCache(region, configuration);
+        }
+        // Las marcas de tiempo no pueden expirar ni desalojarse antes que las consultas que validan
+        cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME,
+            new CaffeineConfiguration<>());
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager secondLevelCacheManager) {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, enabled);
+            properties.put(AvailableSettings.USE_QUERY_CACHE, enabled);
+            properties.put(AvailableSettings.GENERATE_STATISTICS, enabled);
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            properties.put(ConfigSettings.CACHE_MANAGER, secondLevelCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+
+    /**
+     * Aciertos, fallos y escrituras por región, a partir de las estadísticas de Hibernate.
+     */
+    @Bean
+    public MeterBinder secondLevelCacheMetrics(EntityManagerFactory entityManagerFactory) {
+        return registry -> {
+            Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+            for (String region : REGIONS) {
+                FunctionCounter.builder("auth.jpa.cache.requests", statistics, regionCount(region, CacheRegionStatistics::getHitCount))
+                    .tag("region", region)
+                    .tag("result", "hit")
+                    .register(registry);
+                FunctionCounter.builder("auth.jpa.cache.requests", statistics, regionCount(region, CacheRegionStatistics::getMissCount))
+                    .tag("region", region)
+                    .tag("result", "miss")
+                    .register(registry);
+                FunctionCounter.builder("auth.jpa.cache.puts", statistics, regionCount(region, CacheRegionStatistics::getPutCount))
+                    .tag("region", region)
+                    .register(registry);
+            }
+        };
+    }
+
+    /**
+     * Carga los roles y el rol por defecto al arrancar, para que el primer registro no pague la caché fría.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp(ApplicationReadyEvent event) {
+        if (!enabled) {
+            return;
+        }
+        RoleRepository roleRepository = event.getApplicationContext().getBean(RoleRepository.class);
+        int roles = roleRepository.findAll().size();
+        roleRepository.findByName("USER");
+        log.info("Caché de segundo nivel precargada con {} roles", roles);
+    }
+
+    private static ToDoubleFunction<Statistics> regionCount(String region, ToLongFunction<CacheRegionStatistics> count) {
+        return statistics -> {
+            CacheRegionStatistics regionStatistics = statistics.getCacheRegionStatistics(region);
+            return regionStatistics == null ? 0 : count.applyAsLong(regionStatistics);
+        };
+    }
+}
@@ -1,5 +1,9 @@
 package com.hecttoy.auth.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -7,11 +11,13 @@ import org.springframework.security.config.annotation.authentication.configurati
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import com.hecttoy.auth.security.JwtAuthenticationFilter;
+import com.hecttoy.auth.security.LoginRateLimitFilter;
+import com.hecttoy.auth.security.LoginRateLimiter;
+import com.hecttoy.auth.security.PasswordHashCalibrator;
 
 @Configuration
 @EnableWebSecurity
@@ -23,9 +29,32 @@ public class SecurityConfig {
         this.jwtAuthenticationFilter = jwtAuthenticationFilter;
     }
 
+    /**
+     * BCrypt con prefijo {@code {bcrypt}}. Con {@code password-hash.strength} a 0 el coste se
+     * calibra al arrancar para acercarse a {@code password-hash.target-millis} por hash.
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${password-hash.strength:0}") int strength,
+                                           @Value("${password-hash.target-millis:100}") long targetMillis,
+                                           @Value("${password-hash.min-strength:10}") int minStrength,
+                                           @Value("${password-hash.max-strength:16}") int maxStrength) {
+        if (strength <= 0) {
+            strength = PasswordHashCalibrator.calibrateBCrypt(targetMillis, minStrength, maxStrength);
+        }
+        return PasswordHashCalibrator.bcrypt(strength);
+    }
+
+    /**
+     * Limita logins y registros antes de la cadena de seguridad, una vez por petición.
+     */
+    @Bean
+    public FilterRegistrationBean<LoginRateLimitFilter> loginRateLimitFilterRegistration(LoginRateLimiter limiter,
+                                                                                          ObjectMapper objectMapper) {
+        FilterRegistrationBean<LoginRateLimitFilter> registration =
+            new FilterRegistrationBean<>(new LoginRateLimitFilter(limiter, objectMapper));
+        registration.addUrlPatterns("/auth/login", "/auth/register");
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER - 1);
+        return registration;
     }
 
     @Bean
@@ -39,7 +68,7 @@ public class SecurityConfig {
             .csrf(csrf -> csrf.disable())
             .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
             .authorizeHttpRequests(auth -> auth
-                .requestMatchers("/auth/login", "/auth/register", "/auth/refresh").permitAll()
+                .requestMatchers("/auth/login", "/auth/register", "/auth/refresh", "/.well-known/jwks.json").permitAll()
                 .requestMatchers("/auth/logout", "/auth/userinfo").authenticated()
                 .anyRequest().authenticated()
             )
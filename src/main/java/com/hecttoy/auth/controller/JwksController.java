@@ -0,0 +1,44 @@
+package com.hecttoy.auth.controller;
+
+import com.hecttoy.auth.security.JwtKeyRing;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.Duration;
+
+/**
+ * Publica las claves de verificación como un JWK Set (RFC 7517) sin envolver en {@code StandardResponse}.
+ */
+@RestController
+@CrossOrigin(origins = "*", maxAge = 3600)
+public class JwksController {
+
+    private final JwtKeyRing jwtKeyRing;
+    private final long jwksMaxAge;
+
+    public JwksController(JwtKeyRing jwtKeyRing, @Value("${jwt.jwks-max-age:3600}") long jwksMaxAge) {
+        this.jwtKeyRing = jwtKeyRing;
+        this.jwksMaxAge = jwksMaxAge;
+    }
+
+    @GetMapping(value = "/.well-known/jwks.json", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<String> getJwks(WebRequest request) {
+        CacheControl cacheControl = CacheControl.maxAge(Duration.ofSeconds(jwksMaxAge)).cachePublic();
+
+        if (request.checkNotModified(jwtKeyRing.getJwksEtag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(cacheControl).build();
+        }
+
+        return ResponseEntity.ok()
+            .cacheControl(cacheControl)
+            .eTag(jwtKeyRing.getJwksEtag())
+            .body(jwtKeyRing.getJwksJson());
+    }
+}
@@ -1,12 +1,18 @@
 package com.hecttoy.auth.entity;
 
+import com.hecttoy.auth.config.SecondLevelCacheConfig;
+import com.hecttoy.auth.security.PrincipalCacheInvalidator;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfig.ROLES_REGION)
+@EntityListeners(PrincipalCacheInvalidator.class)
 @Table(name = "roles", indexes = @Index(name = "idx_role_name", columnList = "name", unique = true))
 @Data
 @NoArgsConstructor
@@ -1,10 +1,14 @@
 package com.hecttoy.auth.entity;
 
+import com.hecttoy.auth.config.SecondLevelCacheConfig;
+import com.hecttoy.auth.security.PrincipalCacheInvalidator;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 
@@ -13,12 +17,16 @@ import java.util.HashSet;
 import java.util.Set;
 
 @Entity
+@NamedEntityGraph(name = User.WITH_ROLES, attributeNodes = @NamedAttributeNode("roles"))
+@EntityListeners(PrincipalCacheInvalidator.class)
 @Table(name = "users", indexes = @Index(name = "idx_email", columnList = "email", unique = true))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 public class User {
+    public static final String WITH_ROLES = "User.withRoles";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -35,7 +43,9 @@ public class User {
     @Column(nullable = false)
     private boolean enabled = true;
 
-    @ManyToMany(fetch = FetchType.EAGER, cascade = CascadeType.PERSIST)
+    // Lazy: quien necesite los roles los pide con el grafo WITH_ROLES o con findWithRolesByEmail
+    @ManyToMany(fetch = FetchType.LAZY, cascade = CascadeType.PERSIST)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfig.USER_ROLES_REGION)
     @JoinTable(
         name = "user_roles",
         joinColumns = @JoinColumn(name = "user_id"),
@@ -3,12 +3,31 @@ package com.hecttoy.auth.repository;
 import com.hecttoy.auth.entity.RefreshToken;
 import com.hecttoy.auth.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 @Repository
 public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
-    Optional<RefreshToken> findByToken(String token);
+    Optional<RefreshToken> findByTokenHash(byte[] tokenHash);
     void deleteByUser(User user);
+
+    // Cada lote se borra en su propia transacción
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM refresh_tokens WHERE id IN "
+        + "(SELECT id FROM refresh_tokens WHERE expiry_date < :now LIMIT :limit)", nativeQuery = true)
+    int deleteExpiredBatch(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    // Los revocados se conservan hasta su expiración: la detección de reutilización depende de ellos
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM refresh_tokens WHERE id IN "
+        + "(SELECT id FROM refresh_tokens WHERE revoked = true AND expiry_date < :now LIMIT :limit)", nativeQuery = true)
+    int deleteRevokedBatch(@Param("now") LocalDateTime now, @Param("limit") int limit);
 }
@@ -1,13 +1,39 @@
 package com.hecttoy.auth.repository;
 
 import com.hecttoy.auth.entity.User;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
+
+    /**
+     * Usuario y roles en un solo select, para el login.
+     */
+    @Query("SELECT u FROM User u LEFT JOIN FETCH u.roles WHERE u.email = :email")
+    Optional<User> findWithRolesByEmail(@Param("email") String email);
+
+    /**
+     * Datos completos y roles en un solo select, para userinfo.
+     */
+    @EntityGraph(User.WITH_ROLES)
+    Optional<User> findWithRolesById(Long id);
+
     boolean existsByEmail(String email);
+
+    /**
+     * Sustituye el hash solo si sigue siendo {@code oldHash}, para no pisar un cambio de contraseña.
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE User u SET u.password = :newHash WHERE u.id = :id AND u.password = :oldHash")
+    int updatePasswordHash(@Param("id") Long id, @Param("oldHash") String oldHash, @Param("newHash") String newHash);
 }
@@ -0,0 +1,23 @@
+package com.hecttoy.auth.security;
+
+import org.springframework.security.core.GrantedAuthority;
+
+import java.security.Principal;
+import java.util.List;
+
+/**
+ * Principal inmutable que se guarda en el contexto de seguridad en lugar de la entidad JPA
+ * {@code User}, con las authorities ya construidas a partir de los roles del usuario.
+ */
+public record AuthenticatedUser(Long id, String email, boolean enabled, List<GrantedAuthority> authorities)
+        implements Principal {
+
+    public AuthenticatedUser {
+        authorities = List.copyOf(authorities);
+    }
+
+    @Override
+    public String getName() {
+        return email;
+    }
+}
@@ -0,0 +1,160 @@
+package com.hecttoy.auth.security;
+
+import io.jsonwebtoken.security.Jwks;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.cert.Certificate;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.UUID;
+
+/**
+ * Clave de firma ES256 y todas las claves públicas con las que aún se pueden verificar tokens.
+ *
+ * <p>Las claves vienen de un key store PKCS12: la entrada indicada en {@code jwt.active-key-id} firma
+ * los tokens nuevos y el resto (claves o certificados de confianza) se sigue publicando para verificar.
+ * Para rotar se añade la clave nueva, se espera a que pase el max-age del JWKS y se cambia el id activo.
+ * Sin key store el arranque falla salvo que se active {@code jwt.ephemeral-key}: cada instancia firmaría
+ * con su propia clave aleatoria, que el resto de instancias rechaza y que se pierde al reiniciar.
+ */
+@Component
+@Slf4j
+public class JwtKeyRing {
+
+    @Value("${jwt.key-store:}")
+    private String keyStoreLocation;
+
+    @Value("${jwt.key-store-password:}")
+    private String keyStorePassword;
+
+    @Value("${jwt.active-key-id:}")
+    private String activeKeyId;
+
+    @Value("${jwt.ephemeral-key:false}")
+    private boolean ephemeralKey;
+
+    private Map<String, PublicKey> verificationKeys;
+
+    private String signingKeyId;
+
+    private PrivateKey signingKey;
+
+    private String jwksJson;
+
+    private String jwksEtag;
+
+    @PostConstruct
+    public void init() throws GeneralSecurityException, IOException {
+        Map<String, PublicKey> keys = new LinkedHashMap<>();
+
+        if (keyStoreLocation == null || keyStoreLocation.isBlank()) {
+            if (!ephemeralKey) {
+                throw new IllegalStateException("No hay jwt.key-store configurado; jwt.ephemeral-key=true firma "
+                    + "con una clave propia de esta instancia que las demás no pueden verificar");
+            }
+            log.warn("jwt.ephemeral-key activo, generando un par de claves ES256 solo para esta instancia");
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+            generator.initialize(new ECGenParameterSpec("secp256r1"));
+            KeyPair keyPair = generator.generateKeyPair();
+            signingKeyId = UUID.randomUUID().toString();
+            signingKey = keyPair.getPrivate();
+            keys.put(signingKeyId, keyPair.getPublic());
+        } else {
+            loadKeyStore(keys);
+        }
+
+        verificationKeys = Collections.unmodifiableMap(keys);
+        buildJwks();
+        log.info("Claves JWT cargadas: kid de firma={}, kids de verificación={}", signingKeyId, verificationKeys.keySet());
+    }
+
+    public String getSigningKeyId() {
+        return signingKeyId;
+    }
+
+    public PrivateKey getSigningKey() {
+        return signingKey;
+    }
+
+    public PublicKey getVerificationKey(String keyId) {
+        return keyId != null ? verificationKeys.get(keyId) : null;
+    }
+
+    public Map<String, PublicKey> getVerificationKeys() {
+        return verificationKeys;
+    }
+
+    public String getJwksJson() {
+        return jwksJson;
+    }
+
+    public String getJwksEtag() {
+        return jwksEtag;
+    }
+
+    private void loadKeyStore(Map<String, PublicKey> keys) throws GeneralSecurityException, IOException {
+        char[] password = keyStorePassword.toCharArray();
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        Resource resource = new DefaultResourceLoader().getResource(keyStoreLocation);
+        try (InputStream in = resource.getInputStream()) {
+            keyStore.load(in, password);
+        }
+
+        for (String alias : Collections.list(keyStore.aliases())) {
+            Certificate certificate = keyStore.getCertificate(alias);
+            if (certificate == null || !(certificate.getPublicKey() instanceof ECPublicKey)) {
+                log.warn("Se ignora la entrada {} del key store: no es una clave EC", alias);
+                continue;
+            }
+            keys.put(alias, certificate.getPublicKey());
+
+            if (alias.equals(activeKeyId)) {
+                Key key = keyStore.getKey(alias, password);
+                if (!(key instanceof PrivateKey privateKey)) {
+                    throw new IllegalStateException("La clave JWT activa " + alias + " no tiene clave privada");
+                }
+                signingKeyId = alias;
+                signingKey = privateKey;
+            }
+        }
+
+        if (signingKey == null) {
+            throw new IllegalStateException("La clave JWT activa " + activeKeyId + " no está en " + keyStoreLocation);
+        }
+    }
+
+    private void buildJwks() throws GeneralSecurityException {
+        StringJoiner keys = new StringJoiner(",", "{\"keys\":[", "]}");
+        verificationKeys.forEach((keyId, key) -> keys.add(Jwks.json(Jwks.builder()
+            .key((ECPublicKey) key)
+            .id(keyId)
+            .algorithm("ES256")
+            .publicKeyUse("sig")
+            .build())));
+        jwksJson = keys.toString();
+
+        byte[] digest = MessageDigest.getInstance("SHA-256").digest(jwksJson.getBytes(StandardCharsets.UTF_8));
+        jwksEtag = "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(digest) + "\"";
+    }
+}
@@ -2,34 +2,61 @@ package com.hecttoy.auth.security;
 
 import com.hecttoy.auth.entity.User;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.SignatureAlgorithm;
-import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.LocatorAdapter;
+import io.jsonwebtoken.UnsupportedJwtException;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.stereotype.Component;
 
-import javax.crypto.SecretKey;
+import java.security.Key;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import java.util.stream.Collectors;
 
 @Component
 public class JwtTokenProvider {
 
-    @Value("${jwt.secret:mySecretKeyForAuthenticationServerWithMoreThan32CharactersLongForHS256}")
-    private String jwtSecret;
-
     @Value("${jwt.expiration:3600}")
     private long jwtExpiration;
 
     @Value("${jwt.refresh-expiration:604800}")
     private long refreshTokenExpiration;
 
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes());
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final JwtKeyRing jwtKeyRing;
+
+    private JwtParser jwtParser;
+
+    public JwtTokenProvider(VerifiedTokenCache verifiedTokenCache, JwtKeyRing jwtKeyRing) {
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.jwtKeyRing = jwtKeyRing;
+    }
+
+    @PostConstruct
+    public void init() {
+        this.jwtParser = Jwts.parser()
+            .keyLocator(new LocatorAdapter<Key>() {
+                @Override
+                protected Key locate(JwsHeader header) {
+                    Key key = jwtKeyRing.getVerificationKey(header.getKeyId());
+                    if (key == null) {
+                        throw new UnsupportedJwtException("Unknown signing key id: " + header.getKeyId());
+                    }
+                    return key;
+                }
+            })
+            .build();
     }
 
     public String generateAccessToken(User user) {
@@ -41,25 +68,47 @@ public class JwtTokenProvider {
         return createToken(claims, user.getEmail(), jwtExpiration);
     }
 
-    public String generateRefreshToken(User user) {
-        Map<String, Object> claims = new HashMap<>();
-        claims.put("userId", user.getId());
-        return createToken(claims, user.getEmail(), refreshTokenExpiration);
-    }
-
     private String createToken(Map<String, Object> claims, String subject, long expirationTime) {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + expirationTime * 1000);
 
         return Jwts.builder()
-            .setClaims(claims)
-            .setSubject(subject)
-            .setIssuedAt(now)
-            .setExpiration(expiryDate)
-            .signWith(getSigningKey(), SignatureAlgorithm.HS512)
+            .header().keyId(jwtKeyRing.getSigningKeyId()).and()
+            .claims(claims)
+            .subject(subject)
+            .id(UUID.randomUUID().toString())
+            .issuedAt(now)
+            .expiration(expiryDate)
+            .signWith(jwtKeyRing.getSigningKey(), Jwts.SIG.ES256)
             .compact();
     }
 
+    public VerifiedToken verifyToken(String token) {
+        return verifiedTokenCache.getOrVerify(token, this::verifyUncached);
+    }
+
+    private VerifiedToken verifyUncached(String token) {
+        try {
+            Claims claims = getClaims(token);
+            @SuppressWarnings("unchecked")
+            List<String> roles = (List<String>) claims.get("roles");
+            List<GrantedAuthority> authorities = new ArrayList<>();
+            if (roles != null) {
+                roles.forEach(role -> authorities.add(new SimpleGrantedAuthority("ROLE_" + role)));
+            }
+            return new VerifiedToken(
+                claims.getSubject(),
+                claims.get("userId", Long.class),
+                roles,
+                authorities,
+                claims.getExpiration().toInstant(),
+                claims.getId()
+            );
+        } catch (Exception ex) {
+            return null;
+        }
+    }
+
     public String getEmailFromToken(String token) {
         return getClaims(token).getSubject();
     }
@@ -70,10 +119,7 @@ public class JwtTokenProvider {
 
     public boolean validateToken(String token) {
         try {
-            Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token);
+            jwtParser.parseSignedClaims(token);
             return true;
         } catch (Exception ex) {
             return false;
@@ -81,11 +127,9 @@ public class JwtTokenProvider {
     }
 
     private Claims getClaims(String token) {
-        return Jwts.parserBuilder()
-            .setSigningKey(getSigningKey())
-            .build()
-            .parseClaimsJws(token)
-            .getBody();
+        return jwtParser
+            .parseSignedClaims(token)
+            .getPayload();
     }
 
     public LocalDateTime getTokenExpiryDate(String token) {
@@ -96,4 +140,8 @@ public class JwtTokenProvider {
     public long getAccessTokenExpiration() {
         return jwtExpiration;
     }
+
+    public long getRefreshTokenExpiration() {
+        return refreshTokenExpiration;
+    }
 }
@@ -0,0 +1,238 @@
+package com.hecttoy.auth.security;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.StreamReadFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hecttoy.auth.dto.StandardResponse;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Limita {@code POST /auth/login} y {@code /auth/register} con los buckets de
+ * {@link LoginRateLimiter}, por IP del cliente y por email enviado, antes de llegar a BCrypt. Los
+ * rechazos reciben un 429 con un cuerpo serializado una sola vez y un {@code Retry-After} con el
+ * tiempo hasta recuperar un intento.
+ *
+ * <p>El bucket por email tiene que cobrarse al email que enlazará el controlador, así que un cuerpo
+ * cuyo email no se pueda determinar en sus primeros {@value #MAX_INSPECTED_BODY} bytes (no es un objeto
+ * JSON, está cortado, repite claves o el {@code email} no es un string) se responde aquí con un 400.
+ *
+ * <p>La IP es {@code request.getRemoteAddr()}: detrás de un proxy hay que configurar
+ * {@code server.forward-headers-strategy}.
+ */
+public class LoginRateLimitFilter extends OncePerRequestFilter {
+
+    /** Bytes del cuerpo en los que se busca el email; el objeto JSON entero debe caber en ellos. */
+    static final int MAX_INSPECTED_BODY = 8 * 1024;
+
+    /** Se rechazan las claves duplicadas: Jackson enlazaría el último {@code email}, no el que se cobró. */
+    private static final JsonFactory JSON = JsonFactory.builder()
+        .enable(StreamReadFeature.STRICT_DUPLICATE_DETECTION)
+        .build();
+
+    private final LoginRateLimiter limiter;
+    private final byte[] rejectionBody;
+    private final byte[] badRequestBody;
+    private final String ipRetryAfter;
+    private final String emailRetryAfter;
+
+    public LoginRateLimitFilter(LoginRateLimiter limiter, ObjectMapper objectMapper) {
+        this.limiter = limiter;
+        this.ipRetryAfter = String.valueOf(limiter.getIpRetryAfter());
+        this.emailRetryAfter = String.valueOf(limiter.getEmailRetryAfter());
+        try {
+            this.rejectionBody = objectMapper.writeValueAsBytes(StandardResponse.builder()
+                .success(false)
+                .message("Demasiados intentos, inténtalo más tarde")
+                .statusCode(429)
+                .build());
+            this.badRequestBody = objectMapper.writeValueAsBytes(StandardResponse.builder()
+                .success(false)
+                .message("Cuerpo de la petición inválido")
+                .statusCode(400)
+                .build());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudieron serializar las respuestas del limitador", e);
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!limiter.isEnabled() || !"POST".equals(request.getMethod())) {
+            return true;
+        }
+        String path = request.getServletPath();
+        return !"/auth/login".equals(path) && !"/auth/register".equals(path);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        if (!limiter.tryAcquireIp(request.getRemoteAddr())) {
+            reject(response, ipRetryAfter);
+            return;
+        }
+
+        byte[] head = request.getInputStream().readNBytes(MAX_INSPECTED_BODY);
+        String email;
+        try {
+            email = extractEmail(head);
+        } catch (JsonProcessingException e) {
+            write(response, 400, badRequestBody);
+            return;
+        }
+        if (email != null && !limiter.tryAcquireEmail(email)) {
+            reject(response, emailRetryAfter);
+            return;
+        }
+
+        filterChain.doFilter(new ReplayedBodyRequest(request, head), response);
+    }
+
+    private void reject(HttpServletResponse response, String retryAfter) throws IOException {
+        response.setHeader(HttpHeaders.RETRY_AFTER, retryAfter);
+        write(response, 429, rejectionBody);
+    }
+
+    private static void write(HttpServletResponse response, int status, byte[] body) throws IOException {
+        response.setStatus(status);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    /**
+     * Lee el objeto de primer nivel completo, así el {@code email} devuelto es el que enlaza el controlador.
+     *
+     * @return el campo {@code email} de primer nivel, o {@code null} si el objeto no lo tiene
+     * @throws JsonProcessingException si el cuerpo no es un único objeto JSON completo dentro de los bytes
+     *     recibidos, repite una clave o su {@code email} no es un string
+     */
+    static String extractEmail(byte[] body) throws IOException {
+        try (JsonParser parser = JSON.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Se esperaba un objeto JSON");
+            }
+            String email = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                if ("email".equals(parser.currentName())) {
+                    if (parser.nextToken() != JsonToken.VALUE_STRING) {
+                        throw new JsonParseException(parser, "El email debe ser un string");
+                    }
+                    email = parser.getText();
+                } else {
+                    parser.nextToken();
+                    parser.skipChildren();
+                }
+            }
+            if (!parser.hasToken(JsonToken.END_OBJECT)) {
+                throw new JsonParseException(parser, "Fin inesperado del cuerpo");
+            }
+            return email;
+        }
+    }
+
+    /**
+     * Entrega al controlador los bytes ya leídos seguidos del resto del cuerpo.
+     */
+    private static final class ReplayedBodyRequest extends HttpServletRequestWrapper {
+
+        private final ServletInputStream body;
+
+        ReplayedBodyRequest(HttpServletRequest request, byte[] head) throws IOException {
+            super(request);
+            this.body = new ReplayedInputStream(head, request.getInputStream());
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            return body;
+        }
+    }
+
+    /**
+     * Sirve primero la cabecera ya leída y después delega en el stream original, también sus callbacks
+     * de {@link ReadListener} para las lecturas no bloqueantes.
+     */
+    private static final class ReplayedInputStream extends ServletInputStream {
+
+        private final byte[] head;
+        private final ServletInputStream rest;
+        private int position;
+
+        ReplayedInputStream(byte[] head, ServletInputStream rest) {
+            this.head = head;
+            this.rest = rest;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return position < head.length ? head[position++] & 0xFF : rest.read();
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (position >= head.length) {
+                return rest.read(buffer, offset, length);
+            }
+            int n = Math.min(length, head.length - position);
+            System.arraycopy(head, position, buffer, offset, n);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return position < head.length ? head.length - position : rest.available();
+        }
+
+        @Override
+        public boolean isFinished() {
+            return position >= head.length && rest.isFinished();
+        }
+
+        @Override
+        public boolean isReady() {
+            return position < head.length || rest.isReady();
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            rest.setReadListener(new ReadListener() {
+
+                @Override
+                public void onDataAvailable() throws IOException {
+                    readListener.onDataAvailable();
+                }
+
+                @Override
+                public void onAllDataRead() throws IOException {
+                    // Si el cuerpo entero cabía en la cabecera el contenedor puede saltarse onDataAvailable
+                    if (position < head.length) {
+                        readListener.onDataAvailable();
+                    }
+                    readListener.onAllDataRead();
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    readListener.onError(t);
+                }
+            });
+        }
+    }
+}
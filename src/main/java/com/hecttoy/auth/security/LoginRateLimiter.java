@@ -0,0 +1,132 @@
+package com.hecttoy.auth.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Token buckets por IP del cliente y por email para logins y registros, aplicados por
+ * {@link LoginRateLimitFilter}. Cada tipo de clave tiene una {@link TokenBucketTable} de
+ * {@code login-rate-limit.table-size} buckets reservada al arrancar; los buckets ya rellenos se
+ * barren cada {@code login-rate-limit.sweep-interval} ms. Los límites son por instancia.
+ */
+@Component
+@Slf4j
+public class LoginRateLimiter {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${login-rate-limit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${login-rate-limit.ip-burst:20}")
+    private int ipBurst;
+
+    @Value("${login-rate-limit.ip-per-minute:20}")
+    private double ipPerMinute;
+
+    @Value("${login-rate-limit.email-burst:5}")
+    private int emailBurst;
+
+    @Value("${login-rate-limit.email-per-minute:5}")
+    private double emailPerMinute;
+
+    @Value("${login-rate-limit.table-size:1048576}")
+    private int tableSize;
+
+    private TokenBucketTable ipBuckets;
+    private TokenBucketTable emailBuckets;
+    private final AtomicInteger ipKeys = new AtomicInteger();
+    private final AtomicInteger emailKeys = new AtomicInteger();
+    private Counter ipRejected;
+    private Counter emailRejected;
+
+    public LoginRateLimiter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        ipBuckets = new TokenBucketTable(tableSize, ipBurst, ipPerMinute / 60);
+        emailBuckets = new TokenBucketTable(tableSize, emailBurst, emailPerMinute / 60);
+        ipRejected = rejected("ip");
+        emailRejected = rejected("email");
+        bind("ip", ipBuckets, ipKeys);
+        bind("email", emailBuckets, emailKeys);
+        log.info("Límite de login: {} buckets por tipo de clave, {}/min por IP, {}/min por email",
+            ipBuckets.slots(), ipPerMinute, emailPerMinute);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean tryAcquireIp(String ip) {
+        if (ipBuckets.tryAcquire(ip, false)) {
+            return true;
+        }
+        ipRejected.increment();
+        return false;
+    }
+
+    public boolean tryAcquireEmail(String email) {
+        if (emailBuckets.tryAcquire(email, true)) {
+            return true;
+        }
+        emailRejected.increment();
+        return false;
+    }
+
+    /**
+     * @return segundos hasta que una IP recupera un intento
+     */
+    public long getIpRetryAfter() {
+        return (long) Math.ceil(60 / ipPerMinute);
+    }
+
+    /**
+     * @return segundos hasta que un email recupera un intento
+     */
+    public long getEmailRetryAfter() {
+        return (long) Math.ceil(60 / emailPerMinute);
+    }
+
+    @Scheduled(initialDelayString = "${login-rate-limit.sweep-interval:60000}",
+        fixedDelayString = "${login-rate-limit.sweep-interval:60000}")
+    public void evictIdle() {
+        if (!enabled) {
+            return;
+        }
+        ipKeys.set(ipBuckets.evictIdle());
+        emailKeys.set(emailBuckets.evictIdle());
+    }
+
+    private Counter rejected(String limit) {
+        return Counter.builder("auth.ratelimit.rejected")
+            .description("Logins y registros rechazados con 429")
+            .tag("limit", limit)
+            .register(meterRegistry);
+    }
+
+    private void bind(String limit, TokenBucketTable table, AtomicInteger keys) {
+        FunctionCounter.builder("auth.ratelimit.evictions", table, TokenBucketTable::evictions)
+            .description("Buckets reemplazados antes de quedar inactivos por tabla llena")
+            .tag("limit", limit)
+            .register(meterRegistry);
+        Gauge.builder("auth.ratelimit.keys", keys, AtomicInteger::get)
+            .description("Buckets en uso en el último barrido")
+            .tag("limit", limit)
+            .register(meterRegistry);
+    }
+}
@@ -0,0 +1,66 @@
+package com.hecttoy.auth.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.Map;
+
+/**
+ * Elige el coste de BCrypt para esta máquina y construye el encoder de contraseñas con él.
+ *
+ * <p>Los hashes se guardan como {@code {bcrypt}$2a$<coste>$...}, de modo que cada uno registra su
+ * algoritmo y coste. Los hashes sin prefijo, anteriores a él, se siguen verificando como BCrypt.
+ * {@link PasswordEncoder#upgradeEncoding} marca todo hash con algoritmo o coste distinto del actual,
+ * y {@link PasswordUpgrader} los vuelve a generar tras el login.
+ */
+@Slf4j
+public final class PasswordHashCalibrator {
+
+    public static final String BCRYPT = "bcrypt";
+
+    private static final String SAMPLE = "calibration-sample-password";
+    private static final int SAMPLES = 3;
+
+    private PasswordHashCalibrator() {
+    }
+
+    /**
+     * @return el mayor coste entre {@code minStrength} y {@code maxStrength} cuyo hash debería tardar
+     *         como mucho {@code targetMillis} aquí, extrapolado desde {@code minStrength} (cada paso
+     *         duplica el trabajo)
+     */
+    public static int calibrateBCrypt(long targetMillis, int minStrength, int maxStrength) {
+        BCryptPasswordEncoder probe = new BCryptPasswordEncoder(minStrength);
+        probe.encode(SAMPLE);
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            probe.encode(SAMPLE);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+
+        long targetNanos = targetMillis * 1_000_000;
+        int strength = minStrength;
+        long estimate = best;
+        while (strength < maxStrength && estimate * 2 <= targetNanos) {
+            strength++;
+            estimate *= 2;
+        }
+        log.info("Coste BCrypt {} (~{} ms por hash, objetivo {} ms; coste {} tardó {} ms)",
+            strength, estimate / 1_000_000, targetMillis, minStrength, best / 1_000_000);
+        return strength;
+    }
+
+    /**
+     * @return un encoder que escribe hashes {@code {bcrypt}} con {@code strength} y verifica cualquier
+     *         hash BCrypt, con o sin prefijo
+     */
+    public static PasswordEncoder bcrypt(int strength) {
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(strength);
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder(BCRYPT, Map.of(BCRYPT, bcrypt));
+        encoder.setDefaultPasswordEncoderForMatches(bcrypt);
+        return encoder;
+    }
+}
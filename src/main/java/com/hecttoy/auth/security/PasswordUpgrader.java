@@ -0,0 +1,81 @@
+package com.hecttoy.auth.security;
+
+import com.hecttoy.auth.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vuelve a generar, fuera del login, los hashes con un algoritmo o coste desactualizado. Usa un
+ * único hilo con una cola de {@value #QUEUE_CAPACITY} tareas: si se llena, la mejora se descarta y
+ * se reintenta en el siguiente login del usuario. El hash solo se sustituye si no cambió entretanto.
+ */
+@Component
+@Slf4j
+public class PasswordUpgrader {
+
+    private static final int QUEUE_CAPACITY = 256;
+
+    private final PasswordEncoder passwordEncoder;
+    private final UserRepository userRepository;
+    private final ThreadPoolExecutor executor;
+    private final Counter upgraded;
+    private final Counter dropped;
+
+    public PasswordUpgrader(PasswordEncoder passwordEncoder, UserRepository userRepository,
+                            MeterRegistry meterRegistry) {
+        this.passwordEncoder = passwordEncoder;
+        this.userRepository = userRepository;
+        this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(QUEUE_CAPACITY), runnable -> {
+                Thread thread = new Thread(runnable, "password-upgrade");
+                thread.setDaemon(true);
+                return thread;
+            });
+        this.upgraded = Counter.builder("auth.hashing.upgrades")
+            .description("Hashes de contraseña regenerados tras un login")
+            .tag("result", "upgraded")
+            .register(meterRegistry);
+        this.dropped = Counter.builder("auth.hashing.upgrades")
+            .description("Hashes de contraseña regenerados tras un login")
+            .tag("result", "dropped")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Si {@code encodedPassword} está desactualizado, encola su sustitución por un hash nuevo de
+     * {@code rawPassword}. Vuelve de inmediato.
+     */
+    public void upgradeLater(Long userId, String rawPassword, String encodedPassword) {
+        if (!passwordEncoder.upgradeEncoding(encodedPassword)) {
+            return;
+        }
+        try {
+            executor.execute(() -> upgrade(userId, rawPassword, encodedPassword));
+        } catch (RejectedExecutionException e) {
+            dropped.increment();
+        }
+    }
+
+    private void upgrade(Long userId, String rawPassword, String encodedPassword) {
+        try {
+            userRepository.updatePasswordHash(userId, encodedPassword, passwordEncoder.encode(rawPassword));
+            upgraded.increment();
+        } catch (RuntimeException e) {
+            log.warn("No se pudo regenerar el hash de contraseña del usuario {}", userId, e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
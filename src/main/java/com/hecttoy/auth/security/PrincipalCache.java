@@ -0,0 +1,108 @@
+package com.hecttoy.auth.security;
+
+import com.hecttoy.auth.entity.User;
+import com.hecttoy.auth.repository.UserRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caché acotada de {@link AuthenticatedUser} por email, para que el filtro JWT no cargue el usuario
+ * y sus roles en cada petición. Las entradas se recargan pasados {@code jwt.principal-cache.ttl} ms,
+ * lo que acota cuánto conserva el acceso un usuario deshabilitado en otras instancias; en esta
+ * instancia {@link PrincipalCacheInvalidator} las descarta en cuanto cambia un usuario o un rol.
+ */
+@Component
+@Slf4j
+public class PrincipalCache implements MeterBinder {
+
+    private final UserRepository userRepository;
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    @Value("${jwt.principal-cache.ttl:30000}")
+    private long ttlMillis;
+
+    @Value("${jwt.principal-cache.max-size:10000}")
+    private int maxSize;
+
+    public PrincipalCache(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * @return el principal del usuario, o {@code null} si ningún usuario tiene ese email
+     */
+    public AuthenticatedUser get(String email) {
+        long now = System.nanoTime();
+        Entry entry = entries.get(email);
+        if (entry != null && now - entry.loadedAt() <= TimeUnit.MILLISECONDS.toNanos(ttlMillis)) {
+            hits.increment();
+            return entry.principal();
+        }
+
+        misses.increment();
+        AuthenticatedUser principal = userRepository.findWithRolesByEmail(email).map(PrincipalCache::toPrincipal).orElse(null);
+        if (principal == null) {
+            entries.remove(email);
+            return null;
+        }
+        if (entries.size() >= maxSize) {
+            evict(now);
+        }
+        entries.put(email, new Entry(principal, now));
+        return principal;
+    }
+
+    public void invalidate(String email) {
+        entries.remove(email);
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("auth.principal.cache.requests", hits, LongAdder::sum)
+            .tag("result", "hit")
+            .register(registry);
+        FunctionCounter.builder("auth.principal.cache.requests", misses, LongAdder::sum)
+            .tag("result", "miss")
+            .register(registry);
+        Gauge.builder("auth.principal.cache.size", entries, ConcurrentHashMap::size)
+            .register(registry);
+    }
+
+    private void evict(long now) {
+        long ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        entries.values().removeIf(entry -> now - entry.loadedAt() > ttlNanos);
+        if (entries.size() >= maxSize) {
+            entries.clear();
+        }
+        log.debug("Caché de principals reducida a {} entradas", entries.size());
+    }
+
+    private static AuthenticatedUser toPrincipal(User user) {
+        List<GrantedAuthority> authorities = user.getRoles().stream()
+            .<GrantedAuthority>map(role -> new SimpleGrantedAuthority("ROLE_" + role.getName()))
+            .toList();
+        return new AuthenticatedUser(user.getId(), user.getEmail(), user.isEnabled(), authorities);
+    }
+
+    private record Entry(AuthenticatedUser principal, long loadedAt) {
+    }
+}
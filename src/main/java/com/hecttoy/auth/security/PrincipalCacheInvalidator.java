@@ -0,0 +1,54 @@
+package com.hecttoy.auth.security;
+
+import com.hecttoy.auth.entity.Role;
+import com.hecttoy.auth.entity.User;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Listener JPA sobre {@link User} y {@link Role}: un usuario modificado descarta su propio principal
+ * cacheado y un rol modificado los descarta todos, porque cualquier usuario puede tenerlo. La caché se
+ * obtiene de forma perezosa porque depende de los repositorios, que necesitan el entity manager
+ * factory que crea este listener.
+ *
+ * <p>Los callbacks se ejecutan en el flush, antes del commit, así que una petición concurrente aún
+ * podría recargar la fila antigua confirmada y cachearla durante un TTL entero. Por eso las entradas
+ * se vuelven a descartar cuando la transacción hace commit.
+ */
+@Component
+public class PrincipalCacheInvalidator {
+
+    private final ObjectProvider<PrincipalCache> principalCache;
+
+    public PrincipalCacheInvalidator(ObjectProvider<PrincipalCache> principalCache) {
+        this.principalCache = principalCache;
+    }
+
+    @PostUpdate
+    @PostRemove
+    public void onChange(Object entity) {
+        Runnable evict;
+        if (entity instanceof User user) {
+            String email = user.getEmail();
+            evict = () -> principalCache.ifAvailable(cache -> cache.invalidate(email));
+        } else if (entity instanceof Role) {
+            evict = () -> principalCache.ifAvailable(PrincipalCache::invalidateAll);
+        } else {
+            return;
+        }
+
+        evict.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict.run();
+                }
+            });
+        }
+    }
+}
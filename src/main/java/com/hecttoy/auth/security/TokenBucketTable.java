@@ -0,0 +1,192 @@
+package com.hecttoy.auth.security;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tabla de token buckets de tamaño fijo y sin locks: un {@code long} por slot (huella de la clave,
+ * tokens restantes y último relleno) actualizado con un solo CAS. Sin asignaciones por petición.
+ * Con la ventana de {@value #PROBES} slots llena se reemplaza el bucket inactivo desde hace más
+ * tiempo; {@link #evictIdle} libera los que ya se rellenaron por completo.
+ */
+public final class TokenBucketTable {
+
+    static final int PROBES = 8;
+
+    private static final int ONE_TOKEN = 1 << 8;
+    private static final long MAX_TICK = 0xFFFFFFFFL;
+
+    private final AtomicLongArray slots;
+    private final int mask;
+    private final long capacity;
+    private final double refillPerMillis;
+    private final long idleMillis;
+    private final long epochNanos = System.nanoTime();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param slots           tamaño de la tabla, redondeado a potencia de dos
+     * @param burst           capacidad del bucket en peticiones, de 1 a 255
+     * @param refillPerSecond peticiones recuperadas por segundo
+     */
+    public TokenBucketTable(int slots, int burst, double refillPerSecond) {
+        if (burst < 1 || burst > 255) {
+            throw new IllegalArgumentException("burst debe estar entre 1 y 255, es " + burst);
+        }
+        if (refillPerSecond <= 0) {
+            throw new IllegalArgumentException("refillPerSecond debe ser positivo, es " + refillPerSecond);
+        }
+        int size = Integer.highestOneBit(Math.max(PROBES, slots) - 1) << 1;
+        this.slots = new AtomicLongArray(size);
+        this.mask = size - 1;
+        this.capacity = (long) burst * ONE_TOKEN;
+        this.refillPerMillis = refillPerSecond * ONE_TOKEN / 1000.0;
+        this.idleMillis = (long) Math.ceil(burst / refillPerSecond * 1000.0);
+    }
+
+    /**
+     * @return si la petición se permite; consume un token del bucket de la clave
+     */
+    public boolean tryAcquire(CharSequence key, boolean ignoreCase) {
+        return tryAcquire(hash(key, ignoreCase), now());
+    }
+
+    boolean tryAcquire(long hash, long now) {
+        int home = (int) hash & mask;
+        long fingerprint = fingerprint(hash);
+
+        for (;;) {
+            int empty = -1;
+            int victim = -1;
+            long victimState = 0;
+            long victimIdle = -1;
+            boolean retry = false;
+
+            for (int i = 0; i < PROBES && !retry; i++) {
+                int slot = (home + i) & mask;
+                long state = slots.get(slot);
+                if (state == 0) {
+                    if (empty < 0) {
+                        empty = slot;
+                    }
+                } else if ((state >>> 48) == fingerprint) {
+                    int result = consume(slot, state, now);
+                    if (result >= 0) {
+                        return result == 1;
+                    }
+                    retry = true;
+                } else {
+                    long idle = elapsed(state, now);
+                    if (idle > victimIdle) {
+                        victim = slot;
+                        victimState = state;
+                        victimIdle = idle;
+                    }
+                }
+            }
+            if (retry) {
+                continue;
+            }
+
+            int target = empty >= 0 ? empty : victim;
+            long expected = empty >= 0 ? 0 : victimState;
+            if (slots.compareAndSet(target, expected, pack(fingerprint, capacity - ONE_TOKEN, now))) {
+                if (empty < 0) {
+                    evictions.increment();
+                }
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @return buckets que siguen en uso tras liberar los ya rellenos
+     */
+    public int evictIdle() {
+        return evictIdle(now());
+    }
+
+    int evictIdle(long now) {
+        int used = 0;
+        for (int slot = 0; slot <= mask; slot++) {
+            long state = slots.get(slot);
+            if (state != 0 && !(elapsed(state, now) >= idleMillis && slots.compareAndSet(slot, state, 0))) {
+                used++;
+            }
+        }
+        return used;
+    }
+
+    /**
+     * @return buckets reemplazados por tener ocupados todos los slots de su clave
+     */
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    public int slots() {
+        return mask + 1;
+    }
+
+    /**
+     * @return 1 si se permite, 0 si se rechaza, -1 si el slot cambió y hay que repetir la búsqueda
+     */
+    private int consume(int slot, long state, long now) {
+        long tokens = (state >>> 32) & 0xFFFF;
+        long time = state & MAX_TICK;
+        long elapsed = elapsed(state, now);
+        long refill = (long) (elapsed * refillPerMillis);
+        if (tokens + refill >= capacity) {
+            tokens = capacity;
+            time = now;
+        } else if (refill > 0) {
+            // Avanzar solo el tiempo que costaron las unidades enteras, para no perder fracciones
+            tokens += refill;
+            time = (time + Math.max(1, Math.min(elapsed, (long) (refill / refillPerMillis)))) & MAX_TICK;
+        }
+        boolean allowed = tokens >= ONE_TOKEN;
+        if (allowed) {
+            tokens -= ONE_TOKEN;
+        }
+        long next = pack(state >>> 48, tokens, time);
+        if (next == state || slots.compareAndSet(slot, state, next)) {
+            return allowed ? 1 : 0;
+        }
+        return -1;
+    }
+
+    long now() {
+        return ((System.nanoTime() - epochNanos) / 1_000_000) & MAX_TICK;
+    }
+
+    private static long elapsed(long state, long now) {
+        return (now - (state & MAX_TICK)) & MAX_TICK;
+    }
+
+    private static long pack(long fingerprint, long tokens, long time) {
+        return fingerprint << 48 | tokens << 32 | time;
+    }
+
+    private static long fingerprint(long hash) {
+        long fingerprint = hash >>> 48;
+        return fingerprint != 0 ? fingerprint : 1;
+    }
+
+    /**
+     * FNV-1a sobre los chars más un finalizador de 64 bits: ignora mayúsculas sin copiar el String.
+     */
+    static long hash(CharSequence key, boolean ignoreCase) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            hash ^= ignoreCase ? Character.toLowerCase(c) : c;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,22 @@
+package com.hecttoy.auth.security;
+
+import org.springframework.security.core.GrantedAuthority;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Resultado inmutable de verificar una vez la firma de un access token y decodificar sus claims.
+ */
+public record VerifiedToken(String subject, Long userId, List<String> roles,
+                            List<GrantedAuthority> authorities, Instant expiresAt, String jti) {
+
+    public VerifiedToken {
+        roles = roles != null ? List.copyOf(roles) : List.of();
+        authorities = authorities != null ? List.copyOf(authorities) : List.of();
+    }
+
+    public boolean isExpired() {
+        return Instant.now().isAfter(expiresAt);
+    }
+}
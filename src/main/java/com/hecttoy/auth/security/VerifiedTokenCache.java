@@ -0,0 +1,137 @@
+package com.hecttoy.auth.security;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Caché acotada de access tokens ya verificados, indexada por el SHA-256 del token.
+ * Las entradas viven hasta que expira el propio token; las lecturas nunca toman un lock. Una caché
+ * llena la desaloja un solo hilo a la vez y el resto no cachea su token mientras tanto, así que el
+ * tamaño solo supera el máximo en los escritores que vieron hueco en el mismo instante.
+ */
+@Component
+@Slf4j
+public class VerifiedTokenCache implements MeterBinder {
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    });
+
+    private final ConcurrentHashMap<TokenDigest, VerifiedToken> entries = new ConcurrentHashMap<>();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    @Value("${jwt.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${jwt.cache.max-size:10000}")
+    private int maxSize;
+
+    public VerifiedToken getOrVerify(String token, Function<String, VerifiedToken> verifier) {
+        if (!enabled) {
+            return verifier.apply(token);
+        }
+
+        TokenDigest key = TokenDigest.of(token);
+        VerifiedToken cached = entries.get(key);
+        if (cached != null) {
+            if (!cached.isExpired()) {
+                hits.increment();
+                return cached;
+            }
+            entries.remove(key, cached);
+        }
+
+        misses.increment();
+        VerifiedToken verified = verifier.apply(token);
+        if (verified != null && (entries.size() < maxSize || evict())) {
+            entries.put(key, verified);
+        }
+        return verified;
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("auth.token.cache.requests", hits, LongAdder::sum)
+            .tag("result", "hit")
+            .register(registry);
+        FunctionCounter.builder("auth.token.cache.requests", misses, LongAdder::sum)
+            .tag("result", "miss")
+            .register(registry);
+        FunctionCounter.builder("auth.token.cache.evictions", evictions, LongAdder::sum)
+            .register(registry);
+        Gauge.builder("auth.token.cache.size", entries, ConcurrentHashMap::size)
+            .register(registry);
+    }
+
+    private boolean evict() {
+        if (!evicting.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            int before = entries.size();
+            Instant now = Instant.now();
+            entries.values().removeIf(token -> now.isAfter(token.expiresAt()));
+
+            // Sigue llena de tokens vigentes: se descarta una décima parte arbitraria, en orden de hash
+            int target = maxSize - Math.max(1, maxSize / 10);
+            Iterator<TokenDigest> it = entries.keySet().iterator();
+            while (entries.size() > target && it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+            evictions.add(Math.max(0, before - entries.size()));
+            log.debug("Caché de tokens verificados reducida a {} entradas", entries.size());
+            return true;
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    private record TokenDigest(long h0, long h1, long h2, long h3) {
+
+        static TokenDigest of(String token) {
+            MessageDigest digest = SHA_256.get();
+            ByteBuffer hash = ByteBuffer.wrap(digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+            return new TokenDigest(hash.getLong(), hash.getLong(), hash.getLong(), hash.getLong());
+        }
+    }
+}
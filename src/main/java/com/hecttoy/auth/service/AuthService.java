@@ -9,10 +9,8 @@ import com.hecttoy.auth.repository.RefreshTokenRepository;
 import com.hecttoy.auth.repository.RoleRepository;
 import com.hecttoy.auth.repository.UserRepository;
 import com.hecttoy.auth.security.JwtTokenProvider;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.BadCredentialsException;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
+import com.hecttoy.auth.security.OpaqueToken;
+import com.hecttoy.auth.security.PasswordUpgrader;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -28,42 +26,48 @@ public class AuthService {
     private final UserRepository userRepository;
     private final RoleRepository roleRepository;
     private final RefreshTokenRepository refreshTokenRepository;
-    private final AuthenticationManager authenticationManager;
     private final PasswordEncoder passwordEncoder;
     private final JwtTokenProvider jwtTokenProvider;
+    private final PasswordUpgrader passwordUpgrader;
+
+    /** Se compara con él cuando el email no existe, para que ambos fallos cuesten una comprobación de hash. */
+    private volatile String userNotFoundPassword;
 
     public AuthService(UserRepository userRepository, RoleRepository roleRepository,
                       RefreshTokenRepository refreshTokenRepository,
-                      AuthenticationManager authenticationManager,
                       PasswordEncoder passwordEncoder,
-                      JwtTokenProvider jwtTokenProvider) {
+                      JwtTokenProvider jwtTokenProvider,
+                      PasswordUpgrader passwordUpgrader) {
         this.userRepository = userRepository;
         this.roleRepository = roleRepository;
         this.refreshTokenRepository = refreshTokenRepository;
-        this.authenticationManager = authenticationManager;
         this.passwordEncoder = passwordEncoder;
         this.jwtTokenProvider = jwtTokenProvider;
+        this.passwordUpgrader = passwordUpgrader;
     }
 
+    /**
+     * Carga el usuario y sus roles una sola vez, comprueba la contraseña contra esa fila y emite los
+     * tokens a partir de la misma entidad, en lugar de pasar por el {@code AuthenticationManager}
+     * y volver a cargar el usuario.
+     */
     public AuthResponse login(LoginRequest request) {
-        try {
-            Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(
-                    request.getEmail(),
-                    request.getPassword()
-                )
-            );
-        } catch (BadCredentialsException ex) {
+        User user = userRepository.findWithRolesByEmail(request.getEmail()).orElse(null);
+
+        if (user == null) {
+            passwordEncoder.matches(request.getPassword(), getUserNotFoundPassword());
             throw new AuthException("Credenciales inválidas");
         }
 
-        User user = userRepository.findByEmail(request.getEmail())
-            .orElseThrow(() -> new AuthException("Usuario no encontrado"));
+        if (!passwordEncoder.matches(request.getPassword(), user.getPassword())) {
+            throw new AuthException("Credenciales inválidas");
+        }
 
         if (!user.isEnabled()) {
             throw new AuthException("Usuario deshabilitado");
         }
 
+        passwordUpgrader.upgradeLater(user.getId(), request.getPassword(), user.getPassword());
         return generateAuthResponse(user);
     }
 
@@ -102,7 +106,7 @@ public class AuthService {
     }
 
     public AuthResponse refreshToken(RefreshTokenRequest request) {
-        RefreshToken refreshToken = refreshTokenRepository.findByToken(request.getRefreshToken())
+        RefreshToken refreshToken = refreshTokenRepository.findByTokenHash(OpaqueToken.digest(request.getRefreshToken()))
             .orElseThrow(() -> new AuthException("Refresh token inválido o no encontrado"));
 
         if (!refreshToken.isValid()) {
@@ -122,15 +126,22 @@ public class AuthService {
         refreshTokenRepository.deleteByUser(user);
     }
 
+    private String getUserNotFoundPassword() {
+        if (userNotFoundPassword == null) {
+            userNotFoundPassword = passwordEncoder.encode("userNotFoundPassword");
+        }
+        return userNotFoundPassword;
+    }
+
     private AuthResponse generateAuthResponse(User user) {
         String accessToken = jwtTokenProvider.generateAccessToken(user);
-        String refreshToken = jwtTokenProvider.generateRefreshToken(user);
+        String refreshToken = OpaqueToken.generate();
 
-        // Guardar refresh token en BD
+        // Guardar solo el hash del refresh token en BD
         RefreshToken token = RefreshToken.builder()
-            .token(refreshToken)
+            .tokenHash(OpaqueToken.digest(refreshToken))
             .user(user)
-            .expiryDate(LocalDateTime.now().plusDays(7))
+            .expiryDate(LocalDateTime.now().plusSeconds(jwtTokenProvider.getRefreshTokenExpiration()))
             .build();
         refreshTokenRepository.save(token);
 
@@ -0,0 +1,61 @@
+package com.hecttoy.auth.service;
+
+import com.hecttoy.auth.repository.RefreshTokenRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.function.IntSupplier;
+
+/**
+ * Borra periódicamente los refresh tokens expirados en lotes de {@code jwt.refresh-purge.chunk-size}. Los revocados
+ * solo se borran cuando también han expirado, porque la detección de reutilización los necesita hasta entonces;
+ * cada lote en su propia transacción corta para no bloquear los logins concurrentes.
+ */
+@Service
+@ConditionalOnProperty(name = "jwt.refresh-purge.enabled", havingValue = "true", matchIfMissing = true)
+public class RefreshTokenPurgeService {
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final Counter expiredPurged;
+    private final Counter revokedPurged;
+    private final Timer purgeTimer;
+
+    @Value("${jwt.refresh-purge.chunk-size:1000}")
+    private int chunkSize;
+
+    public RefreshTokenPurgeService(RefreshTokenRepository refreshTokenRepository, MeterRegistry meterRegistry) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.expiredPurged = Counter.builder("auth.refresh.purge.rows")
+            .tag("reason", "expired")
+            .register(meterRegistry);
+        this.revokedPurged = Counter.builder("auth.refresh.purge.rows")
+            .tag("reason", "revoked")
+            .register(meterRegistry);
+        this.purgeTimer = Timer.builder("auth.refresh.purge.duration")
+            .register(meterRegistry);
+    }
+
+    @Scheduled(initialDelayString = "${jwt.refresh-purge.initial-delay:60000}",
+        fixedDelayString = "${jwt.refresh-purge.interval:3600000}")
+    public void purge() {
+        purgeTimer.record(() -> {
+            LocalDateTime now = LocalDateTime.now();
+            purgeInChunks(() -> refreshTokenRepository.deleteRevokedBatch(now, chunkSize), revokedPurged);
+            purgeInChunks(() -> refreshTokenRepository.deleteExpiredBatch(now, chunkSize), expiredPurged);
+        });
+    }
+
+    private void purgeInChunks(IntSupplier deleteChunk, Counter counter) {
+        int deleted;
+        do {
+            deleted = deleteChunk.getAsInt();
+            counter.increment(deleted);
+        } while (deleted == chunkSize);
+    }
+}
@@ -18,7 +18,7 @@ public class UserService {
     }
 
     public UserInfoDto getUserInfo(Long userId) {
-        User user = userRepository.findById(userId)
+        User user = userRepository.findWithRolesById(userId)
             .orElseThrow(() -> new ResourceNotFoundException("Usuario no encontrado"));
 
         return UserInfoDto.builder()
@@ -33,7 +33,7 @@ public class UserService {
     }
 
     public UserInfoDto getUserByEmail(String email) {
-        User user = userRepository.findByEmail(email)
+        User user = userRepository.findWithRolesByEmail(email)
             .orElseThrow(() -> new ResourceNotFoundException("Usuario no encontrado"));
 
         return UserInfoDto.builder()
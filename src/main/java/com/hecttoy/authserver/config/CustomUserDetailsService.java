@@ -3,6 +3,7 @@ package com.hecttoy.authserver.config;
 import com.hecttoy.authserver.exception.ResourceNotFoundException;
 import com.hecttoy.authserver.model.User;
 import com.hecttoy.authserver.repository.UserRepository;
+import com.hecttoy.authserver.service.UserExistenceFilter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -18,10 +19,19 @@ public class CustomUserDetailsService implements UserDetailsService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private UserExistenceFilter userExistenceFilter;
+
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userRepository.findByUsername(username)
-            .orElseThrow(() -> new ResourceNotFoundException("User not found with username: " + username));
+        if (!userExistenceFilter.mightHaveUsername(username)) {
+            throw new ResourceNotFoundException("User not found with username: " + username);
+        }
+        User user = userRepository.findWithRolesByUsername(username)
+            .orElseThrow(() -> {
+                userExistenceFilter.recordUsernameFalsePositive();
+                return new ResourceNotFoundException("User not found with username: " + username);
+            });
 
         return org.springframework.security.core.userdetails.User.builder()
             .username(user.getUsername())
@@ -1,8 +1,17 @@
 package com.hecttoy.authserver.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hecttoy.authserver.security.AccessTokenDenylist;
 import com.hecttoy.authserver.security.JwtAuthenticationFilter;
 import com.hecttoy.authserver.security.JwtTokenProvider;
+import com.hecttoy.authserver.security.LoginRateLimitFilter;
+import com.hecttoy.authserver.security.LoginRateLimiter;
+import com.hecttoy.authserver.security.PasswordHashCalibrator;
+import com.hecttoy.authserver.security.TokenVersionCache;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -14,7 +23,6 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
@@ -26,20 +34,57 @@ import com.hecttoy.authserver.security.JwtAccessDeniedHandler;
 @EnableMethodSecurity(prePostEnabled = true)
 public class SecurityConfig {
 
+    /** Role of the gateway and resource server accounts allowed to call {@code /auth/introspect}. */
+    public static final String INTROSPECT_ROLE = "INTROSPECT";
+
     @Autowired
     private JwtTokenProvider jwtTokenProvider;
 
     @Autowired
     private UserDetailsService userDetailsService;
 
+    @Autowired
+    private AccessTokenDenylist accessTokenDenylist;
+
+    @Autowired
+    private TokenVersionCache tokenVersionCache;
+
+    @Value("${app.passwordHashStrength:0}")
+    private int passwordHashStrength;
+
+    @Value("${app.passwordHashTargetMillis:100}")
+    private long passwordHashTargetMillis;
+
+    @Value("${app.passwordHashMinStrength:10}")
+    private int passwordHashMinStrength;
+
+    @Value("${app.passwordHashMaxStrength:16}")
+    private int passwordHashMaxStrength;
+
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        int strength = passwordHashStrength > 0
+            ? passwordHashStrength
+            : PasswordHashCalibrator.calibrateBCrypt(passwordHashTargetMillis, passwordHashMinStrength, passwordHashMaxStrength);
+        return PasswordHashCalibrator.bcrypt(strength);
     }
 
     @Bean
     public JwtAuthenticationFilter jwtAuthenticationFilter() {
-        return new JwtAuthenticationFilter(jwtTokenProvider);
+        return new JwtAuthenticationFilter(jwtTokenProvider, accessTokenDenylist, tokenVersionCache);
+    }
+
+    /**
+     * Throttles logins and registrations ahead of the security chain, once per request.
+     */
+    @Bean
+    public FilterRegistrationBean<LoginRateLimitFilter> loginRateLimitFilterRegistration(LoginRateLimiter limiter,
+                                                                                          ObjectMapper objectMapper) {
+        FilterRegistrationBean<LoginRateLimitFilter> registration =
+            new FilterRegistrationBean<>(new LoginRateLimitFilter(limiter, objectMapper));
+        registration.addUrlPatterns("/auth/login", "/auth/register");
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER - 1);
+        return registration;
     }
 
     @Bean
@@ -63,8 +108,11 @@ public class SecurityConfig {
                 .requestMatchers(HttpMethod.POST, "/auth/register").permitAll()
                 .requestMatchers(HttpMethod.POST, "/auth/login").permitAll()
                 .requestMatchers(HttpMethod.POST, "/auth/refresh").permitAll()
+                .requestMatchers(HttpMethod.POST, "/auth/introspect", "/auth/introspect/batch").hasRole(INTROSPECT_ROLE)
+                .requestMatchers(HttpMethod.GET, "/.well-known/jwks.json").permitAll()
                 .requestMatchers(HttpMethod.GET, "/health").permitAll()
-                .requestMatchers(HttpMethod.GET, "/actuator/**").permitAll()
+                .requestMatchers(HttpMethod.GET, "/actuator/health", "/actuator/health/**").permitAll()
+                .requestMatchers("/actuator/**").hasRole("ADMIN")
                 .anyRequest().authenticated()
             )
             .addFilterBefore(jwtAuthenticationFilter(), UsernamePasswordAuthenticationFilter.class);
@@ -1,15 +1,29 @@
 package com.hecttoy.authserver.controller;
 
 import com.hecttoy.authserver.dto.*;
+import com.hecttoy.authserver.exception.AuthException;
+import com.hecttoy.authserver.security.VerifiedToken;
+import com.hecttoy.authserver.service.AccessTokenRevocationService;
 import com.hecttoy.authserver.service.AuthService;
+import com.hecttoy.authserver.service.RefreshRequestCoalescer;
+import com.hecttoy.authserver.service.UserExistenceFilter;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
 
 @RestController
 @RequestMapping("/auth")
@@ -19,6 +33,21 @@ public class AuthController {
     @Autowired
     private AuthService authService;
 
+    @Autowired
+    private RefreshRequestCoalescer refreshRequestCoalescer;
+
+    @Autowired
+    private AccessTokenRevocationService accessTokenRevocationService;
+
+    @Autowired
+    private UserExistenceFilter userExistenceFilter;
+
+    @Value("${app.userinfoFromClaims:false}")
+    private boolean userinfoFromClaims;
+
+    @Value("${app.userinfoMaxAge:60}")
+    private long userinfoMaxAge;
+
     @PostMapping("/register")
     public ResponseEntity<StandardResponse<UserInfoResponse>> register(
             @Valid @RequestBody RegisterRequest registerRequest) {
@@ -56,7 +85,7 @@ public class AuthController {
             @Valid @RequestBody RefreshTokenRequest refreshTokenRequest) {
         log.info("Refresh token endpoint called");
 
-        TokenResponse tokenResponse = authService.refresh(refreshTokenRequest);
+        TokenResponse tokenResponse = refreshRequestCoalescer.refresh(refreshTokenRequest);
 
         StandardResponse<TokenResponse> response = StandardResponse.success(
             HttpStatus.OK.value(),
@@ -72,7 +101,9 @@ public class AuthController {
             @Valid @RequestBody LogoutRequest logoutRequest) {
         log.info("Logout endpoint called");
 
-        authService.logout(logoutRequest);
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        authService.logout(logoutRequest,
+            authentication.getDetails() instanceof VerifiedToken token ? token : null);
 
         StandardResponse<Void> response = StandardResponse.success(
             HttpStatus.OK.value(),
@@ -83,14 +114,109 @@ public class AuthController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * RFC 7009 style revocation of an access token: users may revoke their own tokens, admins any.
+     * Unknown or expired tokens are accepted silently, as the RFC asks.
+     */
+    @PostMapping(value = "/revoke", consumes = MediaType.APPLICATION_FORM_URLENCODED_VALUE)
+    public ResponseEntity<StandardResponse<Void>> revoke(@RequestParam String token) {
+        log.info("Revoke token endpoint called");
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        accessTokenRevocationService.revoke(token, authentication.getName(), isAdmin(authentication));
+
+        StandardResponse<Void> response = StandardResponse.success(
+            HttpStatus.OK.value(),
+            "Token revoked successfully",
+            null
+        );
+
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/sessions")
+    public ResponseEntity<StandardResponse<List<SessionResponse>>> getSessions() {
+        log.info("Sessions endpoint called");
+
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        List<SessionResponse> sessions = authService.getSessions(username);
+
+        StandardResponse<List<SessionResponse>> response = StandardResponse.success(
+            HttpStatus.OK.value(),
+            "Sessions retrieved successfully",
+            sessions
+        );
+
+        return ResponseEntity.ok(response);
+    }
+
+    @DeleteMapping("/sessions/{deviceId}")
+    public ResponseEntity<StandardResponse<Void>> revokeSession(@PathVariable String deviceId) {
+        log.info("Revoke session endpoint called for device: {}", deviceId);
+
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        authService.revokeSession(username, deviceId);
+
+        StandardResponse<Void> response = StandardResponse.success(
+            HttpStatus.OK.value(),
+            "Session revoked successfully",
+            null
+        );
+
+        return ResponseEntity.ok(response);
+    }
+
+    @DeleteMapping("/sessions")
+    public ResponseEntity<StandardResponse<Void>> revokeAllSessions() {
+        log.info("Revoke all sessions endpoint called");
+
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        authService.revokeAllSessions(username);
+
+        StandardResponse<Void> response = StandardResponse.success(
+            HttpStatus.OK.value(),
+            "All sessions revoked successfully",
+            null
+        );
+
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * With {@code app.userinfoFromClaims} the user info is answered from the verified access token
+     * without a database lookup; {@code fresh=true} (or a token without the {@code pv} claim) always
+     * reads the database. The weak ETag carries the profile version, so a client revalidating after
+     * a profile change gets a new body instead of a 304.
+     */
     @GetMapping("/userinfo")
-    public ResponseEntity<StandardResponse<UserInfoResponse>> getUserInfo() {
+    public ResponseEntity<StandardResponse<UserInfoResponse>> getUserInfo(
+            @RequestParam(defaultValue = "false") boolean fresh, WebRequest request) {
         log.info("User info endpoint called");
 
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         String username = authentication.getName();
 
-        UserInfoResponse userInfo = authService.getUserInfo(username);
+        UserInfoResponse userInfo;
+        CacheControl cacheControl;
+        if (userinfoFromClaims && !fresh
+                && authentication.getDetails() instanceof VerifiedToken token
+                && token.profileVersion() != null) {
+            userInfo = authService.getUserInfo(token);
+            long remaining = Duration.between(Instant.now(), token.expiresAt()).getSeconds();
+            cacheControl = CacheControl.maxAge(Duration.ofSeconds(Math.max(0, Math.min(userinfoMaxAge, remaining))))
+                .cachePrivate();
+        } else {
+            userInfo = authService.getUserInfo(username);
+            cacheControl = CacheControl.noCache().cachePrivate();
+        }
+
+        String etag = "W/\"" + userInfo.getId() + "-" + userInfo.getProfileVersion() + "\"";
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .cacheControl(cacheControl)
+                .varyBy(HttpHeaders.AUTHORIZATION)
+                .build();
+        }
 
         StandardResponse<UserInfoResponse> response = StandardResponse.success(
             HttpStatus.OK.value(),
@@ -98,6 +224,80 @@ public class AuthController {
             userInfo
         );
 
+        return ResponseEntity.ok()
+            .cacheControl(cacheControl)
+            .varyBy(HttpHeaders.AUTHORIZATION)
+            .eTag(etag)
+            .body(response);
+    }
+
+    /**
+     * Disables a user and invalidates its access tokens at once. Admins only.
+     */
+    @PostMapping("/users/{userId}/deactivate")
+    public ResponseEntity<StandardResponse<UserInfoResponse>> deactivateUser(@PathVariable Long userId) {
+        log.info("Deactivate user endpoint called for user id: {}", userId);
+
+        if (!isAdmin(SecurityContextHolder.getContext().getAuthentication())) {
+            throw new AuthException(403, "Not allowed to deactivate users");
+        }
+        UserInfoResponse userInfo = authService.deactivateUser(userId);
+
+        StandardResponse<UserInfoResponse> response = StandardResponse.success(
+            HttpStatus.OK.value(),
+            "User deactivated successfully",
+            userInfo
+        );
+
         return ResponseEntity.ok(response);
     }
+
+    /**
+     * Replaces a user's roles and invalidates its access tokens at once. Admins only.
+     */
+    @PutMapping("/users/{userId}/roles")
+    public ResponseEntity<StandardResponse<UserInfoResponse>> updateRoles(
+            @PathVariable Long userId, @Valid @RequestBody UpdateRolesRequest updateRolesRequest) {
+        log.info("Update roles endpoint called for user id: {}", userId);
+
+        if (!isAdmin(SecurityContextHolder.getContext().getAuthentication())) {
+            throw new AuthException(403, "Not allowed to change user roles");
+        }
+        UserInfoResponse userInfo = authService.updateRoles(userId, updateRolesRequest.getRoles());
+
+        StandardResponse<UserInfoResponse> response = StandardResponse.success(
+            HttpStatus.OK.value(),
+            "User roles updated successfully",
+            userInfo
+        );
+
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Rebuilds the email and username filters from the database, e.g. after bulk imports that
+     * bypassed registration. Admins only.
+     */
+    @PostMapping("/user-filter/rebuild")
+    public ResponseEntity<StandardResponse<Long>> rebuildUserFilter() {
+        log.info("Rebuild user filter endpoint called");
+
+        if (!isAdmin(SecurityContextHolder.getContext().getAuthentication())) {
+            throw new AuthException(403, "Not allowed to rebuild the user filter");
+        }
+        long loaded = userExistenceFilter.rebuild();
+
+        StandardResponse<Long> response = StandardResponse.success(
+            HttpStatus.OK.value(),
+            "User filter rebuilt successfully",
+            loaded
+        );
+
+        return ResponseEntity.ok(response);
+    }
+
+    private static boolean isAdmin(Authentication authentication) {
+        return authentication.getAuthorities().stream()
+            .anyMatch(authority -> "ROLE_ADMIN".equals(authority.getAuthority()));
+    }
 }
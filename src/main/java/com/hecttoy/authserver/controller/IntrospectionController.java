@@ -0,0 +1,56 @@
+package com.hecttoy.authserver.controller;
+
+import com.hecttoy.authserver.dto.IntrospectionBatchRequest;
+import com.hecttoy.authserver.dto.IntrospectionResponse;
+import com.hecttoy.authserver.service.TokenIntrospectionService;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * RFC 7662 token introspection for resource servers and gateways. Like the JWKS endpoint the
+ * responses follow the RFC format and are not wrapped in {@code StandardResponse}.
+ *
+ * <p>Callers authenticate with a bearer token carrying the {@code INTROSPECT} role, as RFC 7662
+ * section 2.1 requires; anonymous calls get 401 and other users 403.
+ */
+@RestController
+@RequestMapping("/auth/introspect")
+public class IntrospectionController {
+
+    @Autowired
+    private TokenIntrospectionService tokenIntrospectionService;
+
+    /**
+     * Single token, as a form post per the RFC. {@code token_type_hint} is accepted but not needed:
+     * access and refresh tokens are told apart by their format.
+     */
+    @PostMapping(consumes = MediaType.APPLICATION_FORM_URLENCODED_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<IntrospectionResponse> introspect(
+            @RequestParam String token,
+            @RequestParam(name = "token_type_hint", required = false) String tokenTypeHint) {
+        return ResponseEntity.ok()
+            .cacheControl(CacheControl.noStore())
+            .body(tokenIntrospectionService.introspect(token));
+    }
+
+    /**
+     * Up to 500 tokens in one round trip; results come back in request order.
+     */
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<IntrospectionResponse>> introspectBatch(
+            @Valid @RequestBody IntrospectionBatchRequest request) {
+        return ResponseEntity.ok()
+            .cacheControl(CacheControl.noStore())
+            .body(tokenIntrospectionService.introspect(request.getTokens()));
+    }
+}
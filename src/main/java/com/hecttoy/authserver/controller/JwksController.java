@@ -0,0 +1,42 @@
+package com.hecttoy.authserver.controller;
+
+import com.hecttoy.authserver.security.JwtKeyRing;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.Duration;
+
+/**
+ * Publishes the token verification keys as a plain RFC 7517 JWK Set, so it is deliberately
+ * not wrapped in {@code StandardResponse}.
+ */
+@RestController
+public class JwksController {
+
+    @Autowired
+    private JwtKeyRing jwtKeyRing;
+
+    @Value("${app.jwksMaxAge:3600}")
+    private long jwksMaxAge;
+
+    @GetMapping(value = "/.well-known/jwks.json", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<String> getJwks(WebRequest request) {
+        CacheControl cacheControl = CacheControl.maxAge(Duration.ofSeconds(jwksMaxAge)).cachePublic();
+
+        if (request.checkNotModified(jwtKeyRing.getJwksEtag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(cacheControl).build();
+        }
+
+        return ResponseEntity.ok()
+            .cacheControl(cacheControl)
+            .eTag(jwtKeyRing.getJwksEtag())
+            .body(jwtKeyRing.getJwksJson());
+    }
+}
@@ -0,0 +1,22 @@
+package com.hecttoy.authserver.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class IntrospectionBatchRequest {
+
+    @NotEmpty(message = "Tokens are required")
+    @Size(max = 500, message = "At most 500 tokens per request")
+    private List<@NotBlank(message = "Token must not be blank") String> tokens;
+}
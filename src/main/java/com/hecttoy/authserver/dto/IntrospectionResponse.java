@@ -0,0 +1,45 @@
+package com.hecttoy.authserver.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * RFC 7662 introspection response. Inactive tokens only carry {@code active} and, when the token
+ * is known to this server, {@code revoked}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class IntrospectionResponse {
+
+    private boolean active;
+    private Boolean revoked;
+    private String scope;
+    private String username;
+    private String sub;
+    private Long exp;
+    private String jti;
+    private List<String> roles;
+
+    @JsonProperty("token_type")
+    private String tokenType;
+
+    @JsonProperty("device_id")
+    private String deviceId;
+
+    public static IntrospectionResponse inactive() {
+        return IntrospectionResponse.builder().active(false).build();
+    }
+
+    public static IntrospectionResponse revoked() {
+        return IntrospectionResponse.builder().active(false).revoked(true).build();
+    }
+}
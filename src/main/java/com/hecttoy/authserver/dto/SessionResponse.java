@@ -0,0 +1,19 @@
+package com.hecttoy.authserver.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SessionResponse {
+
+    private String deviceId;
+    private LocalDateTime lastUsedAt;
+    private LocalDateTime expiresAt;
+}
@@ -16,4 +16,5 @@ public class TokenResponse {
     private String tokenType = "Bearer";
     private Long expiresIn;
     private String scope;
+    private String deviceId;
 }
@@ -0,0 +1,20 @@
+package com.hecttoy.authserver.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Set;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UpdateRolesRequest {
+
+    @NotEmpty(message = "Roles are required")
+    private Set<@NotBlank(message = "Role must not be blank") String> roles;
+}
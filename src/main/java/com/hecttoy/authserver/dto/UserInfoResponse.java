@@ -25,4 +25,5 @@ public class UserInfoResponse {
     private Set<String> roles;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+    private Long profileVersion;
 }
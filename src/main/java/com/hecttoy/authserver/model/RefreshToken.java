@@ -1,5 +1,6 @@
 package com.hecttoy.authserver.model;
 
+import com.hecttoy.authserver.security.OpaqueToken;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -9,7 +10,10 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "refresh_tokens")
+@Table(name = "refresh_tokens", indexes = {
+    @Index(name = "idx_refresh_tokens_expiry_date", columnList = "expiry_date"),
+    @Index(name = "idx_refresh_tokens_user_device", columnList = "user_id, device_id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -20,20 +24,27 @@ public class RefreshToken {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(unique = true, nullable = false)
-    private String token;
+    /** SHA-256 of the opaque token handed to the client; the token itself is never stored. */
+    @Column(name = "token_hash", unique = true, nullable = false, length = OpaqueToken.DIGEST_LENGTH)
+    private byte[] tokenHash;
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
-    @Column(nullable = false)
+    /** Client-chosen device id; each (user, device) pair is one session whose token rotates on refresh. */
+    @Column(name = "device_id", nullable = false, length = 100)
+    private String deviceId;
+
+    @Column(name = "expiry_date", nullable = false)
     private LocalDateTime expiryDate;
 
     @Column(nullable = false)
+    @Builder.Default
     private Boolean revoked = false;
 
     @Column(nullable = false, updatable = false)
+    @Builder.Default
     private LocalDateTime createdAt = LocalDateTime.now();
 
     public boolean isExpired() {
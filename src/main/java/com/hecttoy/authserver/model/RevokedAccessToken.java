@@ -0,0 +1,37 @@
+package com.hecttoy.authserver.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Persisted copy of the in-memory access token denylist, read back on startup and by other
+ * instances. Rows are useless once the token expires and are purged then.
+ */
+@Entity
+@Table(name = "revoked_access_tokens", indexes = {
+    @Index(name = "idx_revoked_access_tokens_expires_at", columnList = "expires_at"),
+    @Index(name = "idx_revoked_access_tokens_revoked_at", columnList = "revoked_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RevokedAccessToken {
+
+    /** The token's {@code jti}, a UUID. */
+    @Id
+    @Column(length = 36)
+    private String jti;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Column(name = "revoked_at", nullable = false)
+    @Builder.Default
+    private LocalDateTime revokedAt = LocalDateTime.now();
+}
@@ -27,9 +27,11 @@ public class Todo {
     private String description;
 
     @Column(nullable = false)
+    @Builder.Default
     private Boolean completed = false;
 
     @Column(nullable = false)
+    @Builder.Default
     private Integer priority = 0;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -37,9 +39,11 @@ public class Todo {
     private User user;
 
     @Column(nullable = false, updatable = false)
+    @Builder.Default
     private LocalDateTime createdAt = LocalDateTime.now();
 
     @Column(nullable = false)
+    @Builder.Default
     private LocalDateTime updatedAt = LocalDateTime.now();
 
     @PreUpdate
@@ -2,14 +2,103 @@ package com.hecttoy.authserver.repository;
 
 import com.hecttoy.authserver.model.RefreshToken;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
 
-    Optional<RefreshToken> findByToken(String token);
+    Optional<RefreshToken> findByTokenHash(byte[] tokenHash);
 
-    void deleteByUserId(Long userId);
+    /**
+     * Consumes a live token in one conditional UPDATE, so of several concurrent callers only one wins.
+     *
+     * @return 1 if the token was live and is now revoked, 0 if it is unknown, expired or already revoked
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE RefreshToken t SET t.revoked = true "
+        + "WHERE t.tokenHash = :tokenHash AND t.revoked = false AND t.expiryDate > :now")
+    int consume(@Param("tokenHash") byte[] tokenHash, @Param("now") LocalDateTime now);
+
+    @Query("SELECT t FROM RefreshToken t JOIN FETCH t.user u LEFT JOIN FETCH u.roles WHERE t.tokenHash = :tokenHash")
+    Optional<RefreshToken> findWithUserByTokenHash(@Param("tokenHash") byte[] tokenHash);
+
+    @Query("SELECT t FROM RefreshToken t JOIN FETCH t.user WHERE t.tokenHash IN :tokenHashes")
+    List<RefreshToken> findWithUserByTokenHashIn(@Param("tokenHashes") Collection<byte[]> tokenHashes);
+
+    /**
+     * Live sessions of the given users, used to tell whether an access token's session was revoked.
+     */
+    @Query("SELECT t.user.id AS userId, t.deviceId AS deviceId FROM RefreshToken t "
+        + "WHERE t.user.id IN :userIds AND t.revoked = false AND t.expiryDate > :now")
+    List<SessionKey> findActiveSessionKeys(@Param("userIds") Collection<Long> userIds, @Param("now") LocalDateTime now);
+
+    /**
+     * Device ids of the user's live sessions, most recently used first.
+     */
+    @Query("SELECT t.deviceId FROM RefreshToken t "
+        + "WHERE t.user.id = :userId AND t.revoked = false AND t.expiryDate > :now ORDER BY t.createdAt DESC")
+    List<String> findActiveDeviceIds(@Param("userId") Long userId, @Param("now") LocalDateTime now);
+
+    @Query("SELECT t FROM RefreshToken t "
+        + "WHERE t.user.username = :username AND t.revoked = false AND t.expiryDate > :now ORDER BY t.createdAt DESC")
+    List<RefreshToken> findActiveByUsername(@Param("username") String username, @Param("now") LocalDateTime now);
+
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE RefreshToken t SET t.revoked = true WHERE t.tokenHash = :tokenHash")
+    int revokeByTokenHash(@Param("tokenHash") byte[] tokenHash);
+
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE RefreshToken t SET t.revoked = true "
+        + "WHERE t.user.id = :userId AND t.deviceId = :deviceId AND t.revoked = false")
+    int revokeByUserIdAndDeviceId(@Param("userId") Long userId, @Param("deviceId") String deviceId);
+
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE RefreshToken t SET t.revoked = true "
+        + "WHERE t.user.id = :userId AND t.deviceId IN :deviceIds AND t.revoked = false")
+    int revokeByUserIdAndDeviceIdIn(@Param("userId") Long userId, @Param("deviceIds") Collection<String> deviceIds);
+
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE RefreshToken t SET t.revoked = true WHERE t.deviceId = :deviceId AND t.revoked = false "
+        + "AND t.user.id IN (SELECT u.id FROM User u WHERE u.username = :username)")
+    int revokeByUsernameAndDeviceId(@Param("username") String username, @Param("deviceId") String deviceId);
+
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE RefreshToken t SET t.revoked = true WHERE t.revoked = false "
+        + "AND t.user.id IN (SELECT u.id FROM User u WHERE u.username = :username)")
+    int revokeAllByUsername(@Param("username") String username);
+
+    /**
+     * Deletes at most {@code limit} tokens that expired before {@code now}, in its own transaction.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM refresh_tokens WHERE id IN "
+        + "(SELECT id FROM refresh_tokens WHERE expiry_date < :now LIMIT :limit)", nativeQuery = true)
+    int deleteExpiredBatch(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    /**
+     * Deletes at most {@code limit} revoked tokens that expired before {@code now}, in its own transaction.
+     * Revoked tokens that are still within their lifetime are kept: refresh-token reuse detection relies on them.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM refresh_tokens WHERE id IN "
+        + "(SELECT id FROM refresh_tokens WHERE revoked = true AND expiry_date < :now LIMIT :limit)", nativeQuery = true)
+    int deleteRevokedBatch(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    interface SessionKey {
+
+        Long getUserId();
+
+        String getDeviceId();
+    }
 }
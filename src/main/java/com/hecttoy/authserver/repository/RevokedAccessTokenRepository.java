@@ -0,0 +1,29 @@
+package com.hecttoy.authserver.repository;
+
+import com.hecttoy.authserver.model.RevokedAccessToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface RevokedAccessTokenRepository extends JpaRepository<RevokedAccessToken, String> {
+
+    List<RevokedAccessToken> findByExpiresAtAfter(LocalDateTime now);
+
+    List<RevokedAccessToken> findByRevokedAtGreaterThanEqualAndExpiresAtAfter(LocalDateTime since, LocalDateTime now);
+
+    /**
+     * Deletes at most {@code limit} rows whose token expired before {@code now}, in its own transaction.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM revoked_access_tokens WHERE jti IN "
+        + "(SELECT jti FROM revoked_access_tokens WHERE expires_at < :now LIMIT :limit)", nativeQuery = true)
+    int deleteExpiredBatch(@Param("now") LocalDateTime now, @Param("limit") int limit);
+}
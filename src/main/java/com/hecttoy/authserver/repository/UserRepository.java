@@ -1,9 +1,16 @@
 package com.hecttoy.authserver.repository;
 
 import com.hecttoy.authserver.model.User;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -13,7 +20,61 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     Optional<User> findByUsername(String username);
 
+    /**
+     * For token minting: the user and its roles in one select.
+     */
+    @EntityGraph(User.WITH_ROLES)
+    Optional<User> findWithRolesByEmail(String email);
+
+    /**
+     * For user info: the full row and its roles in one select.
+     */
+    @EntityGraph(User.WITH_ROLES)
+    Optional<User> findWithRolesByUsername(String username);
+
+    /**
+     * For callers that only need to scope their own queries by user.
+     */
+    @Query("SELECT u.id FROM User u WHERE u.username = :username")
+    Optional<Long> findIdByUsername(@Param("username") String username);
+
     boolean existsByEmail(String email);
 
     boolean existsByUsername(String username);
+
+    /**
+     * Keyset page of users with an id above {@code afterId}, in id order.
+     */
+    @Query("SELECT u.id AS id, u.email AS email, u.username AS username FROM User u WHERE u.id > :afterId ORDER BY u.id")
+    List<UserIdentity> findIdentitiesAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT u.id AS id, u.email AS email, u.username AS username FROM User u WHERE u.createdAt >= :since")
+    List<UserIdentity> findIdentitiesCreatedSince(@Param("since") LocalDateTime since);
+
+    @Query("SELECT u.tokenVersion FROM User u WHERE u.id = :id")
+    Optional<Long> findTokenVersionById(@Param("id") Long id);
+
+    /**
+     * Invalidates every access token issued to the user so far.
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE User u SET u.tokenVersion = u.tokenVersion + 1 WHERE u.id = :id")
+    int incrementTokenVersion(@Param("id") Long id);
+
+    /**
+     * Replaces the password hash only while it is still {@code oldHash}, so a password change made
+     * in the meantime is never overwritten.
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE User u SET u.password = :newHash WHERE u.id = :id AND u.password = :oldHash")
+    int updatePasswordHash(@Param("id") Long id, @Param("oldHash") String oldHash, @Param("newHash") String newHash);
+
+    interface UserIdentity {
+
+        Long getId();
+
+        String getEmail();
+
+        String getUsername();
+    }
 }
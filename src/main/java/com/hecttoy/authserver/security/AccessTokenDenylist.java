@@ -0,0 +1,240 @@
+package com.hecttoy.authserver.security;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.Instant;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory set of revoked access token ids. The {@code jti} of our tokens is a random UUID, kept
+ * here as its two 64-bit halves plus the token's expiry, in sharded open-addressing tables of
+ * {@code long}s (24 bytes per slot, at most half full). Lookups never lock or allocate: the
+ * {@code jti} string is parsed in place and a slot is published by writing its expiry last.
+ * Writers lock one shard; expired ids are dropped by {@link #evictExpired()} and on resize.
+ */
+@Component
+public class AccessTokenDenylist implements MeterBinder {
+
+    private static final int SHARD_COUNT = 16;
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int UUID_LENGTH = 36;
+
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final Shard[] shards = new Shard[SHARD_COUNT];
+    private final LongAdder rejections = new LongAdder();
+
+    public AccessTokenDenylist() {
+        for (int i = 0; i < SHARD_COUNT; i++) {
+            shards[i] = new Shard();
+        }
+    }
+
+    /**
+     * @return whether the id was denied; ids that are not UUIDs are never denied
+     */
+    public boolean contains(String jti) {
+        if (!isUuid(jti)) {
+            return false;
+        }
+        long high = parseHex(jti, 0, 18);
+        long low = parseHex(jti, 19, UUID_LENGTH);
+        long hash = mix(high ^ low);
+        boolean denied = shards[(int) (hash >>> 60)].contains(high, low, (int) hash);
+        if (denied) {
+            rejections.increment();
+        }
+        return denied;
+    }
+
+    /**
+     * Denies the id until {@code expiresAt}; adding it again only extends the expiry.
+     */
+    public void add(String jti, Instant expiresAt) {
+        if (!isUuid(jti)) {
+            throw new IllegalArgumentException("Access token id is not a UUID: " + jti);
+        }
+        long high = parseHex(jti, 0, 18);
+        long low = parseHex(jti, 19, UUID_LENGTH);
+        long hash = mix(high ^ low);
+        shards[(int) (hash >>> 60)].add(high, low, (int) hash, Math.max(1, expiresAt.getEpochSecond()));
+    }
+
+    /**
+     * @return the number of ids dropped because their token expired
+     */
+    public int evictExpired() {
+        long now = Instant.now().getEpochSecond();
+        int evicted = 0;
+        for (Shard shard : shards) {
+            evicted += shard.evictExpired(now);
+        }
+        return evicted;
+    }
+
+    public void clear() {
+        for (Shard shard : shards) {
+            shard.clear();
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Shard shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("auth.denylist.size", this, AccessTokenDenylist::size)
+            .register(registry);
+        FunctionCounter.builder("auth.denylist.rejections", rejections, LongAdder::sum)
+            .description("Requests rejected because their access token was revoked")
+            .register(registry);
+    }
+
+    private static boolean isUuid(String jti) {
+        return jti != null && jti.length() == UUID_LENGTH
+            && jti.charAt(8) == '-' && jti.charAt(13) == '-' && jti.charAt(18) == '-' && jti.charAt(23) == '-'
+            && isHex(jti);
+    }
+
+    private static boolean isHex(String jti) {
+        for (int i = 0; i < UUID_LENGTH; i++) {
+            char c = jti.charAt(i);
+            if (c != '-' && Character.digit(c, 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long parseHex(String s, int from, int to) {
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c != '-') {
+                value = (value << 4) | Character.digit(c, 16);
+            }
+        }
+        return value;
+    }
+
+    // MurmurHash3 finalizer: UUID v4 has fixed version and variant bits, so spread before masking
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Linear-probing table of {@code [high, low, expiry]} triples. An expiry of 0 marks an empty
+     * slot; filled slots are only ever replaced wholesale by publishing a new table.
+     */
+    private static final class Shard {
+
+        private volatile long[] slots = new long[INITIAL_CAPACITY * 3];
+        private int size;
+
+        boolean contains(long high, long low, int hash) {
+            long[] table = slots;
+            int mask = table.length / 3 - 1;
+            for (int i = hash & mask; ; i = (i + 1) & mask) {
+                int base = i * 3;
+                if ((long) SLOTS.getAcquire(table, base + 2) == 0) {
+                    return false;
+                }
+                if (table[base] == high && table[base + 1] == low) {
+                    return true;
+                }
+            }
+        }
+
+        synchronized void add(long high, long low, int hash, long expiresAt) {
+            long[] table = slots;
+            int base = find(table, high, low, hash);
+            if (table[base + 2] != 0) {
+                SLOTS.setRelease(table, base + 2, Math.max(table[base + 2], expiresAt));
+                return;
+            }
+
+            if ((size + 1) * 2 > table.length / 3) {
+                // Drop expired ids first and only grow if the live ones still fill half the table
+                long now = Instant.now().getEpochSecond();
+                table = rebuild(table.length / 3, now);
+                if ((size + 1) * 2 > table.length / 3) {
+                    table = rebuild(table.length / 3 * 2, now);
+                }
+                base = find(table, high, low, hash);
+            }
+            table[base] = high;
+            table[base + 1] = low;
+            SLOTS.setRelease(table, base + 2, expiresAt);
+            size++;
+        }
+
+        synchronized int evictExpired(long now) {
+            int before = size;
+            long[] table = slots;
+            for (int base = 0; base < table.length; base += 3) {
+                if (table[base + 2] != 0 && table[base + 2] <= now) {
+                    rebuild(table.length / 3, now);
+                    break;
+                }
+            }
+            return before - size;
+        }
+
+        synchronized void clear() {
+            slots = new long[INITIAL_CAPACITY * 3];
+            size = 0;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        /**
+         * @return the slot holding the id, or the empty slot where it belongs
+         */
+        private static int find(long[] table, long high, long low, int hash) {
+            int mask = table.length / 3 - 1;
+            for (int i = hash & mask; ; i = (i + 1) & mask) {
+                int base = i * 3;
+                if (table[base + 2] == 0 || (table[base] == high && table[base + 1] == low)) {
+                    return base;
+                }
+            }
+        }
+
+        private long[] rebuild(int capacity, long now) {
+            long[] old = slots;
+            long[] table = new long[capacity * 3];
+            int live = 0;
+            for (int base = 0; base < old.length; base += 3) {
+                long expiresAt = old[base + 2];
+                if (expiresAt > now) {
+                    int target = find(table, old[base], old[base + 1], (int) mix(old[base] ^ old[base + 1]));
+                    table[target] = old[base];
+                    table[target + 1] = old[base + 1];
+                    table[target + 2] = expiresAt;
+                    live++;
+                }
+            }
+            slots = table;
+            size = live;
+            return table;
+        }
+    }
+}
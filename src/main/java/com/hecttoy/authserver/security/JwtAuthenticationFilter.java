@@ -6,24 +6,34 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.List;
+import java.util.Set;
 
 @Slf4j
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
+    private static final Set<String> PUBLIC_PATHS = Set.of(
+        "/auth/login", "/auth/register", "/auth/refresh", "/.well-known/jwks.json");
+
     private final JwtTokenProvider jwtTokenProvider;
 
-    public JwtAuthenticationFilter(JwtTokenProvider jwtTokenProvider) {
+    private final AccessTokenDenylist accessTokenDenylist;
+
+    private final TokenVersionCache tokenVersionCache;
+
+    public JwtAuthenticationFilter(JwtTokenProvider jwtTokenProvider, AccessTokenDenylist accessTokenDenylist,
+                                   TokenVersionCache tokenVersionCache) {
         this.jwtTokenProvider = jwtTokenProvider;
+        this.accessTokenDenylist = accessTokenDenylist;
+        this.tokenVersionCache = tokenVersionCache;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return PUBLIC_PATHS.contains(request.getServletPath());
     }
 
     @Override
@@ -31,24 +41,19 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             throws ServletException, IOException {
         try {
             String jwt = extractJwtFromRequest(request);
+            VerifiedToken token = jwt != null ? jwtTokenProvider.verifyToken(jwt) : null;
 
-            if (jwt != null && jwtTokenProvider.validateToken(jwt)) {
-                String username = jwtTokenProvider.getUsernameFromToken(jwt);
-                var claims = jwtTokenProvider.getAllClaimsFromToken(jwt);
-
-                @SuppressWarnings("unchecked")
-                List<String> roles = (List<String>) claims.get("roles");
-                Collection<GrantedAuthority> authorities = new ArrayList<>();
-
-                if (roles != null) {
-                    roles.forEach(role -> authorities.add(new SimpleGrantedAuthority("ROLE_" + role)));
-                }
-
-                Authentication authentication = new UsernamePasswordAuthenticationToken(
-                    username, null, authorities);
+            if (token != null && accessTokenDenylist.contains(token.jti())) {
+                log.debug("Rejected revoked access token for user: {}", token.subject());
+            } else if (token != null && !tokenVersionCache.isCurrent(token)) {
+                log.debug("Rejected outdated access token for user: {}", token.subject());
+            } else if (token != null) {
+                UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+                    token.subject(), null, token.authorities());
+                authentication.setDetails(token);
                 SecurityContextHolder.getContext().setAuthentication(authentication);
 
-                log.debug("Set authentication for user: {}", username);
+                log.debug("Set authentication for user: {}", token.subject());
             }
         } catch (Exception e) {
             log.error("Could not set user authentication in security context: {}", e.getMessage());
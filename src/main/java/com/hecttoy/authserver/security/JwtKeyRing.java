@@ -0,0 +1,160 @@
+package com.hecttoy.authserver.security;
+
+import io.jsonwebtoken.security.Jwks;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.cert.Certificate;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.UUID;
+
+/**
+ * ES256 signing key plus every public key that tokens may still be verified with.
+ *
+ * <p>Keys come from a PKCS12 key store: the entry named by {@code app.jwtActiveKeyId} signs new
+ * tokens, every other entry (key or trusted certificate) stays published for verification.
+ * To rotate, add the new key, wait for the JWKS max-age to pass, then switch the active id.
+ * Without a key store, startup fails unless {@code app.jwtEphemeralKey} is set: each instance would
+ * then sign with its own random key, which the other instances reject and which dies on restart.
+ */
+@Component
+@Slf4j
+public class JwtKeyRing {
+
+    @Value("${app.jwtKeyStore:}")
+    private String keyStoreLocation;
+
+    @Value("${app.jwtKeyStorePassword:}")
+    private String keyStorePassword;
+
+    @Value("${app.jwtActiveKeyId:}")
+    private String activeKeyId;
+
+    @Value("${app.jwtEphemeralKey:false}")
+    private boolean ephemeralKey;
+
+    private Map<String, PublicKey> verificationKeys;
+
+    private String signingKeyId;
+
+    private PrivateKey signingKey;
+
+    private String jwksJson;
+
+    private String jwksEtag;
+
+    @PostConstruct
+    public void init() throws GeneralSecurityException, IOException {
+        Map<String, PublicKey> keys = new LinkedHashMap<>();
+
+        if (keyStoreLocation == null || keyStoreLocation.isBlank()) {
+            if (!ephemeralKey) {
+                throw new IllegalStateException("No app.jwtKeyStore configured; set app.jwtEphemeralKey=true "
+                    + "to sign with a per-instance key that other instances cannot verify");
+            }
+            log.warn("app.jwtEphemeralKey set, generating an ephemeral ES256 key pair for this instance only");
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+            generator.initialize(new ECGenParameterSpec("secp256r1"));
+            KeyPair keyPair = generator.generateKeyPair();
+            signingKeyId = UUID.randomUUID().toString();
+            signingKey = keyPair.getPrivate();
+            keys.put(signingKeyId, keyPair.getPublic());
+        } else {
+            loadKeyStore(keys);
+        }
+
+        verificationKeys = Collections.unmodifiableMap(keys);
+        buildJwks();
+        log.info("JWT key ring loaded: signing kid={}, verification kids={}", signingKeyId, verificationKeys.keySet());
+    }
+
+    public String getSigningKeyId() {
+        return signingKeyId;
+    }
+
+    public PrivateKey getSigningKey() {
+        return signingKey;
+    }
+
+    public PublicKey getVerificationKey(String keyId) {
+        return keyId != null ? verificationKeys.get(keyId) : null;
+    }
+
+    public Map<String, PublicKey> getVerificationKeys() {
+        return verificationKeys;
+    }
+
+    public String getJwksJson() {
+        return jwksJson;
+    }
+
+    public String getJwksEtag() {
+        return jwksEtag;
+    }
+
+    private void loadKeyStore(Map<String, PublicKey> keys) throws GeneralSecurityException, IOException {
+        char[] password = keyStorePassword.toCharArray();
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        Resource resource = new DefaultResourceLoader().getResource(keyStoreLocation);
+        try (InputStream in = resource.getInputStream()) {
+            keyStore.load(in, password);
+        }
+
+        for (String alias : Collections.list(keyStore.aliases())) {
+            Certificate certificate = keyStore.getCertificate(alias);
+            if (certificate == null || !(certificate.getPublicKey() instanceof ECPublicKey)) {
+                log.warn("Skipping key store entry {}: not an EC key", alias);
+                continue;
+            }
+            keys.put(alias, certificate.getPublicKey());
+
+            if (alias.equals(activeKeyId)) {
+                Key key = keyStore.getKey(alias, password);
+                if (!(key instanceof PrivateKey privateKey)) {
+                    throw new IllegalStateException("Active JWT key " + alias + " has no private key");
+                }
+                signingKeyId = alias;
+                signingKey = privateKey;
+            }
+        }
+
+        if (signingKey == null) {
+            throw new IllegalStateException("Active JWT key " + activeKeyId + " not found in " + keyStoreLocation);
+        }
+    }
+
+    private void buildJwks() throws GeneralSecurityException {
+        StringJoiner keys = new StringJoiner(",", "{\"keys\":[", "]}");
+        verificationKeys.forEach((keyId, key) -> keys.add(Jwks.json(Jwks.builder()
+            .key((ECPublicKey) key)
+            .id(keyId)
+            .algorithm("ES256")
+            .publicKeyUse("sig")
+            .build())));
+        jwksJson = keys.toString();
+
+        byte[] digest = MessageDigest.getInstance("SHA-256").digest(jwksJson.getBytes(StandardCharsets.UTF_8));
+        jwksEtag = "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(digest) + "\"";
+    }
+}
@@ -1,39 +1,66 @@
 package com.hecttoy.authserver.security;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.SignatureAlgorithm;
-import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.LocatorAdapter;
+import io.jsonwebtoken.UnsupportedJwtException;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.stereotype.Component;
 
 import java.security.Key;
+import java.util.ArrayList;
 import java.util.Date;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 @Component
 @Slf4j
 public class JwtTokenProvider {
 
-    @Value("${app.jwtSecret:mySecretKeyForJWTTokenGenerationThatIsAtLeast32CharactersLongForHS256}")
-    private String jwtSecret;
-
     @Value("${app.jwtAccessTokenExpiration:900000}")
     private long jwtAccessTokenExpiration;
 
     @Value("${app.jwtRefreshTokenExpiration:604800000}")
     private long jwtRefreshTokenExpiration;
 
+    @Autowired
+    private VerifiedTokenCache verifiedTokenCache;
+
+    @Autowired
+    private JwtKeyRing jwtKeyRing;
+
+    private JwtParser jwtParser;
+
+    @PostConstruct
+    public void init() {
+        this.jwtParser = Jwts.parser()
+            .keyLocator(new LocatorAdapter<Key>() {
+                @Override
+                protected Key locate(JwsHeader header) {
+                    Key key = jwtKeyRing.getVerificationKey(header.getKeyId());
+                    if (key == null) {
+                        throw new UnsupportedJwtException("Unknown signing key id: " + header.getKeyId());
+                    }
+                    return key;
+                }
+            })
+            .build();
+    }
+
     public String generateAccessToken(String username, Map<String, Object> claims) {
         return createToken(username, claims, jwtAccessTokenExpiration);
     }
 
-    public String generateRefreshToken(String username) {
-        Map<String, Object> claims = new HashMap<>();
-        claims.put("type", "refresh");
-        return createToken(username, claims, jwtRefreshTokenExpiration);
+    public long getRefreshTokenExpiration() {
+        return jwtRefreshTokenExpiration;
     }
 
     private String createToken(String username, Map<String, Object> claims, long expirationTime) {
@@ -41,14 +68,35 @@ public class JwtTokenProvider {
         Date expiryDate = new Date(now.getTime() + expirationTime);
 
         return Jwts.builder()
-            .setClaims(claims)
-            .setSubject(username)
-            .setIssuedAt(now)
-            .setExpiration(expiryDate)
-            .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+            .header().keyId(jwtKeyRing.getSigningKeyId()).and()
+            .claims(claims)
+            .subject(username)
+            .id(UUID.randomUUID().toString())
+            .issuedAt(now)
+            .expiration(expiryDate)
+            .signWith(jwtKeyRing.getSigningKey(), Jwts.SIG.ES256)
             .compact();
     }
 
+    /**
+     * Verifies the signature and decodes the claims in one pass, served from the
+     * {@link VerifiedTokenCache} when the same token was verified before.
+     *
+     * @return the verified token, or {@code null} if the token is malformed, tampered or expired
+     */
+    public VerifiedToken verifyToken(String token) {
+        return verifiedTokenCache.getOrVerify(token, this::verifyUncached);
+    }
+
+    private VerifiedToken verifyUncached(String token) {
+        try {
+            return toVerifiedToken(getAllClaimsFromToken(token));
+        } catch (Exception e) {
+            log.error("Token validation failed: {}", e.getMessage());
+            return null;
+        }
+    }
+
     public String getUsernameFromToken(String token) {
         try {
             Claims claims = getAllClaimsFromToken(token);
@@ -61,10 +109,7 @@ public class JwtTokenProvider {
 
     public boolean validateToken(String token) {
         try {
-            Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token);
+            getAllClaimsFromToken(token);
             return true;
         } catch (Exception e) {
             log.error("Token validation failed: {}", e.getMessage());
@@ -73,11 +118,9 @@ public class JwtTokenProvider {
     }
 
     public Claims getAllClaimsFromToken(String token) {
-        return Jwts.parserBuilder()
-            .setSigningKey(getSigningKey())
-            .build()
-            .parseClaimsJws(token)
-            .getBody();
+        return jwtParser
+            .parseSignedClaims(token)
+            .getPayload();
     }
 
     public Long getExpirationTime(String token) {
@@ -90,7 +133,27 @@ public class JwtTokenProvider {
         }
     }
 
-    private Key getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes());
+    @SuppressWarnings("unchecked")
+    private VerifiedToken toVerifiedToken(Claims claims) {
+        List<String> roles = (List<String>) claims.get("roles");
+        List<GrantedAuthority> authorities = new ArrayList<>();
+        if (roles != null) {
+            roles.forEach(role -> authorities.add(new SimpleGrantedAuthority("ROLE_" + role)));
+        }
+
+        return new VerifiedToken(
+            claims.getSubject(),
+            claims.get("id", Long.class),
+            roles,
+            authorities,
+            claims.getExpiration().toInstant(),
+            claims.getId(),
+            claims.get("email", String.class),
+            claims.get("firstName", String.class),
+            claims.get("lastName", String.class),
+            claims.get("pv", Long.class),
+            claims.get("sid", String.class),
+            claims.get("tv", Long.class)
+        );
     }
 }
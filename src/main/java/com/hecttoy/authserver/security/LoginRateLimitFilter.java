@@ -0,0 +1,237 @@
+package com.hecttoy.authserver.security;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.StreamReadFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hecttoy.authserver.dto.ErrorResponse;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Throttles {@code POST /auth/login} and {@code /auth/register} with the {@link LoginRateLimiter}
+ * buckets, per client IP and per submitted email, before the request reaches BCrypt. Rejections get
+ * a 429 with a body serialized once and a {@code Retry-After} of the time to regain one attempt.
+ *
+ * <p>The email bucket must be charged for the address the controller will bind, so a body whose
+ * email cannot be pinned down from its first {@value #MAX_INSPECTED_BODY} bytes (not a JSON object,
+ * cut off, duplicated keys or a non-string {@code email}) is answered with a 400 right here.
+ *
+ * <p>The IP is {@code request.getRemoteAddr()}: behind a proxy, set
+ * {@code server.forward-headers-strategy} so it is the client's.
+ */
+public class LoginRateLimitFilter extends OncePerRequestFilter {
+
+    /** Bytes of the body searched for the email; the whole JSON object must fit in them. */
+    static final int MAX_INSPECTED_BODY = 8 * 1024;
+
+    /** Duplicate keys are rejected: Jackson would bind the last {@code email}, not the one we charged. */
+    private static final JsonFactory JSON = JsonFactory.builder()
+        .enable(StreamReadFeature.STRICT_DUPLICATE_DETECTION)
+        .build();
+
+    private final LoginRateLimiter limiter;
+    private final byte[] rejectionBody;
+    private final byte[] badRequestBody;
+    private final String ipRetryAfter;
+    private final String emailRetryAfter;
+
+    public LoginRateLimitFilter(LoginRateLimiter limiter, ObjectMapper objectMapper) {
+        this.limiter = limiter;
+        this.ipRetryAfter = String.valueOf(limiter.getIpRetryAfter());
+        this.emailRetryAfter = String.valueOf(limiter.getEmailRetryAfter());
+        try {
+            this.rejectionBody = objectMapper.writeValueAsBytes(ErrorResponse.builder()
+                .code(429)
+                .message("Too many attempts, try again later")
+                .status("ERROR")
+                .build());
+            this.badRequestBody = objectMapper.writeValueAsBytes(ErrorResponse.builder()
+                .code(400)
+                .message("Malformed request body")
+                .status("ERROR")
+                .build());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize the rate limit responses", e);
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!limiter.isEnabled() || !"POST".equals(request.getMethod())) {
+            return true;
+        }
+        String path = request.getServletPath();
+        return !"/auth/login".equals(path) && !"/auth/register".equals(path);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        if (!limiter.tryAcquireIp(request.getRemoteAddr())) {
+            reject(response, ipRetryAfter);
+            return;
+        }
+
+        byte[] head = request.getInputStream().readNBytes(MAX_INSPECTED_BODY);
+        String email;
+        try {
+            email = extractEmail(head);
+        } catch (JsonProcessingException e) {
+            write(response, 400, badRequestBody);
+            return;
+        }
+        if (email != null && !limiter.tryAcquireEmail(email)) {
+            reject(response, emailRetryAfter);
+            return;
+        }
+
+        filterChain.doFilter(new ReplayedBodyRequest(request, head), response);
+    }
+
+    private void reject(HttpServletResponse response, String retryAfter) throws IOException {
+        response.setHeader(HttpHeaders.RETRY_AFTER, retryAfter);
+        write(response, 429, rejectionBody);
+    }
+
+    private static void write(HttpServletResponse response, int status, byte[] body) throws IOException {
+        response.setStatus(status);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    /**
+     * Reads the whole top-level object, so the {@code email} returned is the one the controller binds.
+     *
+     * @return the top-level {@code email} field, or {@code null} if the object has none
+     * @throws JsonProcessingException if the body is not a single JSON object complete within the bytes
+     *     given, repeats a key, or has a non-string {@code email}
+     */
+    static String extractEmail(byte[] body) throws IOException {
+        try (JsonParser parser = JSON.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Expected a JSON object");
+            }
+            String email = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                if ("email".equals(parser.currentName())) {
+                    if (parser.nextToken() != JsonToken.VALUE_STRING) {
+                        throw new JsonParseException(parser, "Expected email to be a string");
+                    }
+                    email = parser.getText();
+                } else {
+                    parser.nextToken();
+                    parser.skipChildren();
+                }
+            }
+            if (!parser.hasToken(JsonToken.END_OBJECT)) {
+                throw new JsonParseException(parser, "Unexpected end of input");
+            }
+            return email;
+        }
+    }
+
+    /**
+     * Hands the controller the bytes already read, followed by whatever was left of the body.
+     */
+    private static final class ReplayedBodyRequest extends HttpServletRequestWrapper {
+
+        private final ServletInputStream body;
+
+        ReplayedBodyRequest(HttpServletRequest request, byte[] head) throws IOException {
+            super(request);
+            this.body = new ReplayedInputStream(head, request.getInputStream());
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            return body;
+        }
+    }
+
+    /**
+     * Serves the buffered head, then delegates to the original stream, including its non-blocking
+     * {@link ReadListener} callbacks once the head is consumed.
+     */
+    private static final class ReplayedInputStream extends ServletInputStream {
+
+        private final byte[] head;
+        private final ServletInputStream rest;
+        private int position;
+
+        ReplayedInputStream(byte[] head, ServletInputStream rest) {
+            this.head = head;
+            this.rest = rest;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return position < head.length ? head[position++] & 0xFF : rest.read();
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (position >= head.length) {
+                return rest.read(buffer, offset, length);
+            }
+            int n = Math.min(length, head.length - position);
+            System.arraycopy(head, position, buffer, offset, n);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return position < head.length ? head.length - position : rest.available();
+        }
+
+        @Override
+        public boolean isFinished() {
+            return position >= head.length && rest.isFinished();
+        }
+
+        @Override
+        public boolean isReady() {
+            return position < head.length || rest.isReady();
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            rest.setReadListener(new ReadListener() {
+
+                @Override
+                public void onDataAvailable() throws IOException {
+                    readListener.onDataAvailable();
+                }
+
+                @Override
+                public void onAllDataRead() throws IOException {
+                    // The container may already have the whole body in the head and skip onDataAvailable
+                    if (position < head.length) {
+                        readListener.onDataAvailable();
+                    }
+                    readListener.onAllDataRead();
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    readListener.onError(t);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.hecttoy.authserver.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Token buckets per client IP and per email for logins and registrations, applied by
+ * {@link LoginRateLimitFilter}. Each key type gets a {@link TokenBucketTable} of
+ * {@code app.loginRateLimitTableSize} buckets, allocated at startup; buckets that have refilled are
+ * swept every {@code app.loginRateLimitSweepInterval} ms. Limits are per instance.
+ */
+@Component
+@Slf4j
+public class LoginRateLimiter {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.loginRateLimitEnabled:true}")
+    private boolean enabled;
+
+    @Value("${app.loginRateLimitIpBurst:20}")
+    private int ipBurst;
+
+    @Value("${app.loginRateLimitIpPerMinute:20}")
+    private double ipPerMinute;
+
+    @Value("${app.loginRateLimitEmailBurst:5}")
+    private int emailBurst;
+
+    @Value("${app.loginRateLimitEmailPerMinute:5}")
+    private double emailPerMinute;
+
+    @Value("${app.loginRateLimitTableSize:1048576}")
+    private int tableSize;
+
+    private TokenBucketTable ipBuckets;
+    private TokenBucketTable emailBuckets;
+    private final AtomicInteger ipKeys = new AtomicInteger();
+    private final AtomicInteger emailKeys = new AtomicInteger();
+    private Counter ipRejected;
+    private Counter emailRejected;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        ipBuckets = new TokenBucketTable(tableSize, ipBurst, ipPerMinute / 60);
+        emailBuckets = new TokenBucketTable(tableSize, emailBurst, emailPerMinute / 60);
+        ipRejected = rejected("ip");
+        emailRejected = rejected("email");
+        bind("ip", ipBuckets, ipKeys);
+        bind("email", emailBuckets, emailKeys);
+        log.info("Login rate limit: {} buckets per key type, {}/min per IP, {}/min per email",
+            ipBuckets.slots(), ipPerMinute, emailPerMinute);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean tryAcquireIp(String ip) {
+        if (ipBuckets.tryAcquire(ip, false)) {
+            return true;
+        }
+        ipRejected.increment();
+        return false;
+    }
+
+    public boolean tryAcquireEmail(String email) {
+        if (emailBuckets.tryAcquire(email, true)) {
+            return true;
+        }
+        emailRejected.increment();
+        return false;
+    }
+
+    /**
+     * @return seconds until an IP regains one attempt
+     */
+    public long getIpRetryAfter() {
+        return (long) Math.ceil(60 / ipPerMinute);
+    }
+
+    /**
+     * @return seconds until an email regains one attempt
+     */
+    public long getEmailRetryAfter() {
+        return (long) Math.ceil(60 / emailPerMinute);
+    }
+
+    @Scheduled(initialDelayString = "${app.loginRateLimitSweepInterval:60000}",
+        fixedDelayString = "${app.loginRateLimitSweepInterval:60000}")
+    public void evictIdle() {
+        if (!enabled) {
+            return;
+        }
+        ipKeys.set(ipBuckets.evictIdle());
+        emailKeys.set(emailBuckets.evictIdle());
+    }
+
+    private Counter rejected(String limit) {
+        return Counter.builder("auth.ratelimit.rejected")
+            .description("Login and registration requests rejected with 429")
+            .tag("limit", limit)
+            .register(meterRegistry);
+    }
+
+    private void bind(String limit, TokenBucketTable table, AtomicInteger keys) {
+        FunctionCounter.builder("auth.ratelimit.evictions", table, TokenBucketTable::evictions)
+            .description("Buckets replaced before they were idle because the table was full")
+            .tag("limit", limit)
+            .register(meterRegistry);
+        Gauge.builder("auth.ratelimit.keys", keys, AtomicInteger::get)
+            .description("Buckets in use at the last idle sweep")
+            .tag("limit", limit)
+            .register(meterRegistry);
+    }
+}
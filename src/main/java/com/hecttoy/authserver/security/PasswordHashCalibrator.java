@@ -0,0 +1,66 @@
+package com.hecttoy.authserver.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.Map;
+
+/**
+ * Picks the BCrypt cost for this machine and builds the password encoder around it.
+ *
+ * <p>Hashes are stored as {@code {bcrypt}$2a$<cost>$...}, so each one records its algorithm and
+ * cost. Hashes without the prefix, written before it existed, are still verified as BCrypt.
+ * {@link PasswordEncoder#upgradeEncoding} reports every hash whose algorithm or cost differs from
+ * the current one, and the login path re-hashes those.
+ */
+@Slf4j
+public final class PasswordHashCalibrator {
+
+    public static final String BCRYPT = "bcrypt";
+
+    private static final String SAMPLE = "calibration-sample-password";
+    private static final int SAMPLES = 3;
+
+    private PasswordHashCalibrator() {
+    }
+
+    /**
+     * @return the highest cost between {@code minStrength} and {@code maxStrength} whose hash is
+     *         expected to take at most {@code targetMillis} here, extrapolated from timings at
+     *         {@code minStrength} (each step doubles the work)
+     */
+    public static int calibrateBCrypt(long targetMillis, int minStrength, int maxStrength) {
+        BCryptPasswordEncoder probe = new BCryptPasswordEncoder(minStrength);
+        probe.encode(SAMPLE);
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            probe.encode(SAMPLE);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+
+        long targetNanos = targetMillis * 1_000_000;
+        int strength = minStrength;
+        long estimate = best;
+        while (strength < maxStrength && estimate * 2 <= targetNanos) {
+            strength++;
+            estimate *= 2;
+        }
+        log.info("BCrypt cost {} (~{} ms per hash, target {} ms; cost {} took {} ms)",
+            strength, estimate / 1_000_000, targetMillis, minStrength, best / 1_000_000);
+        return strength;
+    }
+
+    /**
+     * @return an encoder that writes {@code {bcrypt}} hashes at {@code strength} and verifies any
+     *         BCrypt hash, prefixed or not
+     */
+    public static PasswordEncoder bcrypt(int strength) {
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(strength);
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder(BCRYPT, Map.of(BCRYPT, bcrypt));
+        encoder.setDefaultPasswordEncoderForMatches(bcrypt);
+        return encoder;
+    }
+}
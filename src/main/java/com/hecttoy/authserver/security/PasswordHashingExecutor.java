@@ -0,0 +1,213 @@
+package com.hecttoy.authserver.security;
+
+import com.hecttoy.authserver.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Runs password hashing and verification on a dedicated pool of
+ * {@code app.hashingCoreShare} x cores threads, so a login or registration burst can use at most
+ * that share of the CPU and the rest stays available for token validation and the API.
+ *
+ * <p>Callers wait for the result on their own thread. Up to {@code app.hashingQueueCapacity}
+ * requests may wait for a hashing thread; beyond that, requests fail at once with
+ * {@link ServiceUnavailableException} (503 with {@code Retry-After}) instead of piling up.
+ *
+ * <p>{@link #upgradeLater} re-hashes outdated hashes after a login without making it wait. Upgrades
+ * run on a separate single thread with its own queue of {@code app.hashingUpgradeQueueCapacity},
+ * so they never take a slot from logins and registrations; when that queue is full the upgrade is
+ * dropped and retried on the user's next login.
+ */
+@Component
+@Slf4j
+public class PasswordHashingExecutor {
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.hashingEnabled:true}")
+    private boolean enabled;
+
+    @Value("${app.hashingCoreShare:0.5}")
+    private double coreShare;
+
+    @Value("${app.hashingQueueCapacity:64}")
+    private int queueCapacity;
+
+    @Value("${app.hashingRetryAfter:1}")
+    private long retryAfterSeconds;
+
+    @Value("${app.hashingUpgradeQueueCapacity:256}")
+    private int upgradeQueueCapacity;
+
+    private ThreadPoolExecutor executor;
+    private ThreadPoolExecutor upgradeExecutor;
+    private Timer waitTimer;
+    private Counter rejected;
+    private Counter upgraded;
+    private Counter upgradesDropped;
+
+    @PostConstruct
+    public void init() {
+        waitTimer = Timer.builder("auth.hashing.wait")
+            .description("Time a hashing request waited for a hashing thread")
+            .register(meterRegistry);
+        rejected = Counter.builder("auth.hashing.rejected")
+            .description("Hashing requests rejected because the queue was full")
+            .register(meterRegistry);
+        upgraded = Counter.builder("auth.hashing.upgrades")
+            .description("Outdated password hashes re-hashed after a login")
+            .tag("result", "upgraded")
+            .register(meterRegistry);
+        upgradesDropped = Counter.builder("auth.hashing.upgrades")
+            .description("Outdated password hashes re-hashed after a login")
+            .tag("result", "dropped")
+            .register(meterRegistry);
+        if (!enabled) {
+            return;
+        }
+        int threads = Math.max(1, (int) Math.round(Runtime.getRuntime().availableProcessors() * coreShare));
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), new HashingThreadFactory("password-hashing-"),
+            new ThreadPoolExecutor.AbortPolicy());
+        executor.prestartAllCoreThreads();
+        upgradeExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(Math.max(1, upgradeQueueCapacity)), new HashingThreadFactory("password-upgrade-"),
+            new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("auth.hashing.queue.depth", executor, pool -> pool.getQueue().size())
+            .description("Hashing requests waiting for a hashing thread")
+            .register(meterRegistry);
+        Gauge.builder("auth.hashing.active", executor, ThreadPoolExecutor::getActiveCount)
+            .description("Hashing threads busy")
+            .register(meterRegistry);
+        FunctionCounter.builder("auth.hashing.completed", executor, ThreadPoolExecutor::getCompletedTaskCount)
+            .description("Hashing requests completed")
+            .register(meterRegistry);
+        log.info("Password hashing on {} threads, up to {} queued requests", threads, queueCapacity);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+            upgradeExecutor.shutdownNow();
+        }
+    }
+
+    public String encode(CharSequence rawPassword) {
+        return run(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * If {@code encodedPassword} uses an outdated algorithm or cost, hashes {@code rawPassword} again
+     * in the background and hands the new hash to {@code store}. Returns at once.
+     */
+    public void upgradeLater(String rawPassword, String encodedPassword, Consumer<String> store) {
+        if (!passwordEncoder.upgradeEncoding(encodedPassword)) {
+            return;
+        }
+        Runnable upgrade = () -> {
+            try {
+                store.accept(passwordEncoder.encode(rawPassword));
+                upgraded.increment();
+            } catch (RuntimeException e) {
+                log.warn("Could not upgrade a password hash", e);
+            }
+        };
+        if (upgradeExecutor == null) {
+            upgrade.run();
+            return;
+        }
+        try {
+            upgradeExecutor.execute(upgrade);
+        } catch (RejectedExecutionException e) {
+            upgradesDropped.increment();
+        }
+    }
+
+    private <T> T run(Callable<T> hashing) {
+        if (executor == null) {
+            return call(hashing);
+        }
+        long submitted = System.nanoTime();
+        Future<T> result;
+        try {
+            result = executor.submit(() -> {
+                waitTimer.record(System.nanoTime() - submitted, TimeUnit.NANOSECONDS);
+                return hashing.call();
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new ServiceUnavailableException("Too many authentication requests, try again later", retryAfterSeconds);
+        }
+
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for password hashing", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static <T> T call(Callable<T> hashing) {
+        try {
+            return hashing.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class HashingThreadFactory implements ThreadFactory {
+
+        private final String prefix;
+        private final AtomicInteger count = new AtomicInteger();
+
+        HashingThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable task) {
+            Thread thread = new Thread(task, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.hecttoy.authserver.security;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-size, lock-free table of token buckets keyed by string (client IP, email...). Memory is one
+ * {@code long} per slot, allocated up front, so millions of distinct keys cost no allocation and no
+ * GC work per request.
+ *
+ * <p>Each slot packs a 16-bit key fingerprint, the tokens left (8.8 fixed point, so at most 255)
+ * and the last refill time in ms, and is updated with a single CAS. A key may live in any of
+ * {@value #PROBES} consecutive slots. When they are all taken, the bucket idle for longest is
+ * replaced: under that pressure forgotten keys start over with a full bucket. Two keys with the
+ * same slot and fingerprint share a bucket, which only makes the limit stricter for them.
+ * {@link #evictIdle} frees buckets that have refilled completely, since they carry no state.
+ */
+public final class TokenBucketTable {
+
+    static final int PROBES = 8;
+
+    private static final int ONE_TOKEN = 1 << 8;
+    private static final long MAX_TICK = 0xFFFFFFFFL;
+
+    private final AtomicLongArray slots;
+    private final int mask;
+    private final long capacity;
+    private final double refillPerMillis;
+    private final long idleMillis;
+    private final long epochNanos = System.nanoTime();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param slots           table size, rounded up to a power of two
+     * @param burst           bucket capacity in requests, 1 to 255
+     * @param refillPerSecond requests regained per second
+     */
+    public TokenBucketTable(int slots, int burst, double refillPerSecond) {
+        if (burst < 1 || burst > 255) {
+            throw new IllegalArgumentException("burst must be between 1 and 255, got " + burst);
+        }
+        if (refillPerSecond <= 0) {
+            throw new IllegalArgumentException("refillPerSecond must be positive, got " + refillPerSecond);
+        }
+        int size = Integer.highestOneBit(Math.max(PROBES, slots) - 1) << 1;
+        this.slots = new AtomicLongArray(size);
+        this.mask = size - 1;
+        this.capacity = (long) burst * ONE_TOKEN;
+        this.refillPerMillis = refillPerSecond * ONE_TOKEN / 1000.0;
+        this.idleMillis = (long) Math.ceil(burst / refillPerSecond * 1000.0);
+    }
+
+    /**
+     * Takes one token from the key's bucket.
+     *
+     * @return whether the request is allowed
+     */
+    public boolean tryAcquire(CharSequence key, boolean ignoreCase) {
+        return tryAcquire(hash(key, ignoreCase), now());
+    }
+
+    boolean tryAcquire(long hash, long now) {
+        int home = (int) hash & mask;
+        long fingerprint = fingerprint(hash);
+
+        for (;;) {
+            int empty = -1;
+            int victim = -1;
+            long victimState = 0;
+            long victimIdle = -1;
+            boolean retry = false;
+
+            for (int i = 0; i < PROBES && !retry; i++) {
+                int slot = (home + i) & mask;
+                long state = slots.get(slot);
+                if (state == 0) {
+                    if (empty < 0) {
+                        empty = slot;
+                    }
+                } else if ((state >>> 48) == fingerprint) {
+                    int result = consume(slot, state, now);
+                    if (result >= 0) {
+                        return result == 1;
+                    }
+                    retry = true;
+                } else {
+                    long idle = elapsed(state, now);
+                    if (idle > victimIdle) {
+                        victim = slot;
+                        victimState = state;
+                        victimIdle = idle;
+                    }
+                }
+            }
+            if (retry) {
+                continue;
+            }
+
+            int target = empty >= 0 ? empty : victim;
+            long expected = empty >= 0 ? 0 : victimState;
+            if (slots.compareAndSet(target, expected, pack(fingerprint, capacity - ONE_TOKEN, now))) {
+                if (empty < 0) {
+                    evictions.increment();
+                }
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Frees every bucket that has been idle long enough to be full again.
+     *
+     * @return buckets still in use
+     */
+    public int evictIdle() {
+        return evictIdle(now());
+    }
+
+    int evictIdle(long now) {
+        int used = 0;
+        for (int slot = 0; slot <= mask; slot++) {
+            long state = slots.get(slot);
+            if (state != 0 && !(elapsed(state, now) >= idleMillis && slots.compareAndSet(slot, state, 0))) {
+                used++;
+            }
+        }
+        return used;
+    }
+
+    /**
+     * @return buckets replaced because all the slots of their key were taken
+     */
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    public int slots() {
+        return mask + 1;
+    }
+
+    /**
+     * @return 1 if allowed, 0 if rejected, -1 if the slot changed underneath and the lookup must be redone
+     */
+    private int consume(int slot, long state, long now) {
+        long tokens = (state >>> 32) & 0xFFFF;
+        long time = state & MAX_TICK;
+        long elapsed = elapsed(state, now);
+        long refill = (long) (elapsed * refillPerMillis);
+        if (tokens + refill >= capacity) {
+            tokens = capacity;
+            time = now;
+        } else if (refill > 0) {
+            // Advance only by the time the whole refill units took, so fractions are not lost
+            tokens += refill;
+            time = (time + Math.max(1, Math.min(elapsed, (long) (refill / refillPerMillis)))) & MAX_TICK;
+        }
+        boolean allowed = tokens >= ONE_TOKEN;
+        if (allowed) {
+            tokens -= ONE_TOKEN;
+        }
+        long next = pack(state >>> 48, tokens, time);
+        if (next == state || slots.compareAndSet(slot, state, next)) {
+            return allowed ? 1 : 0;
+        }
+        return -1;
+    }
+
+    long now() {
+        return ((System.nanoTime() - epochNanos) / 1_000_000) & MAX_TICK;
+    }
+
+    private static long elapsed(long state, long now) {
+        return (now - (state & MAX_TICK)) & MAX_TICK;
+    }
+
+    private static long pack(long fingerprint, long tokens, long time) {
+        return fingerprint << 48 | tokens << 32 | time;
+    }
+
+    private static long fingerprint(long hash) {
+        long fingerprint = hash >>> 48;
+        return fingerprint != 0 ? fingerprint : 1;
+    }
+
+    /**
+     * FNV-1a over the chars followed by a 64-bit finalizer, so no String copy is needed to ignore case.
+     */
+    static long hash(CharSequence key, boolean ignoreCase) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            hash ^= ignoreCase ? Character.toLowerCase(c) : c;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
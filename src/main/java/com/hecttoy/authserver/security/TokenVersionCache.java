@@ -0,0 +1,102 @@
+package com.hecttoy.authserver.security;
+
+import com.hecttoy.authserver.repository.UserRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Current token version per user id. An access token is only accepted while its {@code tv} claim
+ * matches, so bumping {@code users.token_version} invalidates every token of that user.
+ *
+ * <p>Versions are read from the database at most once per {@code app.tokenVersionCacheTtl} ms per
+ * user. Bumps on this instance apply at once through {@link TokenVersionChangedEvent}; other
+ * instances see them when the entry expires.
+ */
+@Component
+@Slf4j
+public class TokenVersionCache implements MeterBinder {
+
+    /** Version of users that no longer exist: no token can match it. */
+    private static final long DELETED = -1;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${app.tokenVersionCacheTtl:5000}")
+    private long ttlMillis;
+
+    @Value("${app.tokenVersionCacheMaxSize:100000}")
+    private int maxSize;
+
+    private final ConcurrentHashMap<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final LongAdder loads = new LongAdder();
+
+    /**
+     * @return whether the token carries the user's current version; tokens issued before the
+     *         {@code tv} claim existed count as version 0
+     */
+    public boolean isCurrent(VerifiedToken token) {
+        if (token.userId() == null) {
+            return false;
+        }
+        long tokenVersion = token.tokenVersion() != null ? token.tokenVersion() : 0L;
+
+        long now = System.nanoTime();
+        Entry entry = entries.get(token.userId());
+        // A newer token than the cached version means this instance missed a bump: reload
+        if (entry == null || entry.isStale(now, ttlMillis) || tokenVersion > entry.version()) {
+            entry = load(token.userId(), now);
+        }
+        return tokenVersion == entry.version();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTokenVersionChanged(TokenVersionChangedEvent event) {
+        entries.put(event.userId(), new Entry(event.tokenVersion(), System.nanoTime()));
+        log.debug("Token version of user id {} is now {}", event.userId(), event.tokenVersion());
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("auth.token.version.loads", loads, LongAdder::sum)
+            .description("Token versions read from the database")
+            .register(registry);
+        Gauge.builder("auth.token.version.cache.size", entries, ConcurrentHashMap::size)
+            .register(registry);
+    }
+
+    private Entry load(Long userId, long now) {
+        loads.increment();
+        if (entries.size() >= maxSize) {
+            entries.values().removeIf(entry -> entry.isStale(now, ttlMillis));
+            if (entries.size() >= maxSize) {
+                entries.clear();
+            }
+        }
+        Entry entry = new Entry(userRepository.findTokenVersionById(userId).orElse(DELETED), now);
+        entries.put(userId, entry);
+        return entry;
+    }
+
+    private record Entry(long version, long loadedAt) {
+
+        boolean isStale(long now, long ttlMillis) {
+            return now - loadedAt > TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.hecttoy.authserver.security;
+
+/**
+ * Published after a user's token version was bumped, so this instance stops accepting the user's
+ * older access tokens at once instead of after {@code app.tokenVersionCacheTtl}.
+ */
+public record TokenVersionChangedEvent(Long userId, long tokenVersion) {
+}
@@ -0,0 +1,27 @@
+package com.hecttoy.authserver.security;
+
+import org.springframework.security.core.GrantedAuthority;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Immutable result of a single signature check and claims decode of an access token. The profile
+ * fields let {@code /auth/userinfo} answer from the token; {@code profileVersion} is {@code null}
+ * for tokens issued before the {@code pv} claim existed, {@code deviceId} and {@code tokenVersion}
+ * for tokens issued before the {@code sid} and {@code tv} claims existed.
+ */
+public record VerifiedToken(String subject, Long userId, List<String> roles,
+                            List<GrantedAuthority> authorities, Instant expiresAt, String jti,
+                            String email, String firstName, String lastName, Long profileVersion,
+                            String deviceId, Long tokenVersion) {
+
+    public VerifiedToken {
+        roles = roles != null ? List.copyOf(roles) : List.of();
+        authorities = authorities != null ? List.copyOf(authorities) : List.of();
+    }
+
+    public boolean isExpired() {
+        return Instant.now().isAfter(expiresAt);
+    }
+}
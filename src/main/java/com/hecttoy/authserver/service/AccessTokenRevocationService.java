@@ -0,0 +1,115 @@
+package com.hecttoy.authserver.service;
+
+import com.hecttoy.authserver.exception.AuthException;
+import com.hecttoy.authserver.model.RevokedAccessToken;
+import com.hecttoy.authserver.repository.RevokedAccessTokenRepository;
+import com.hecttoy.authserver.security.AccessTokenDenylist;
+import com.hecttoy.authserver.security.JwtTokenProvider;
+import com.hecttoy.authserver.security.VerifiedToken;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * Revokes access tokens before they expire. Revoked ids go to the {@link AccessTokenDenylist}
+ * checked on every request and to {@code revoked_access_tokens}, from which the denylist is
+ * rebuilt on startup and other instances pick them up every {@code app.accessTokenDenylistSyncInterval} ms.
+ */
+@Service
+@Slf4j
+public class AccessTokenRevocationService {
+
+    private static final int PURGE_CHUNK_SIZE = 1000;
+
+    @Autowired
+    private AccessTokenDenylist accessTokenDenylist;
+
+    @Autowired
+    private RevokedAccessTokenRepository revokedAccessTokenRepository;
+
+    @Autowired
+    private JwtTokenProvider jwtTokenProvider;
+
+    @Value("${app.accessTokenDenylistSyncInterval:10000}")
+    private long syncIntervalMillis;
+
+    private volatile LocalDateTime lastSync;
+
+    @PostConstruct
+    public void rebuild() {
+        LocalDateTime now = LocalDateTime.now();
+        List<RevokedAccessToken> revoked = revokedAccessTokenRepository.findByExpiresAtAfter(now);
+        accessTokenDenylist.clear();
+        revoked.forEach(this::deny);
+        lastSync = now;
+        log.info("Access token denylist rebuilt with {} revoked tokens", revoked.size());
+    }
+
+    @Transactional
+    public void revoke(VerifiedToken token) {
+        if (token.jti() == null || token.isExpired()) {
+            return;
+        }
+        revokedAccessTokenRepository.save(RevokedAccessToken.builder()
+            .jti(token.jti())
+            .expiresAt(LocalDateTime.ofInstant(token.expiresAt(), ZoneId.systemDefault()))
+            .build());
+        accessTokenDenylist.add(token.jti(), token.expiresAt());
+        log.info("Access token {} revoked for user: {}", token.jti(), token.subject());
+    }
+
+    /**
+     * Revokes a raw access token on behalf of {@code username}. Tokens that do not verify are
+     * ignored; refresh tokens are revoked through logout or the sessions endpoints instead.
+     */
+    @Transactional
+    public void revoke(String rawToken, String username, boolean admin) {
+        if (rawToken.indexOf('.') < 0) {
+            throw new AuthException(400, "Unsupported token type, only access tokens can be revoked here");
+        }
+        VerifiedToken token = jwtTokenProvider.verifyToken(rawToken);
+        if (token == null) {
+            return;
+        }
+        if (!admin && !token.subject().equals(username)) {
+            throw new AuthException(403, "Not allowed to revoke this token");
+        }
+        revoke(token);
+    }
+
+    public boolean isRevoked(VerifiedToken token) {
+        return accessTokenDenylist.contains(token.jti());
+    }
+
+    /**
+     * Picks up tokens revoked by other instances and drops expired ids from memory and the table.
+     */
+    @Scheduled(initialDelayString = "${app.accessTokenDenylistSyncInterval:10000}",
+        fixedDelayString = "${app.accessTokenDenylistSyncInterval:10000}")
+    public void sync() {
+        LocalDateTime now = LocalDateTime.now();
+        // Overlap one interval so rows committed late, or by an instance with a skewed clock, are not missed
+        LocalDateTime since = lastSync.minus(syncIntervalMillis, ChronoUnit.MILLIS);
+        revokedAccessTokenRepository.findByRevokedAtGreaterThanEqualAndExpiresAtAfter(since, now).forEach(this::deny);
+        lastSync = now;
+
+        int evicted = accessTokenDenylist.evictExpired();
+        int purged = revokedAccessTokenRepository.deleteExpiredBatch(now, PURGE_CHUNK_SIZE);
+        if (evicted + purged > 0) {
+            log.debug("Access token denylist evicted {} ids and purged {} rows", evicted, purged);
+        }
+    }
+
+    private void deny(RevokedAccessToken revoked) {
+        accessTokenDenylist.add(revoked.getJti(), revoked.getExpiresAt().atZone(ZoneId.systemDefault()).toInstant());
+    }
+}
@@ -11,19 +11,34 @@ import com.hecttoy.authserver.repository.RefreshTokenRepository;
 import com.hecttoy.authserver.repository.RoleRepository;
 import com.hecttoy.authserver.repository.UserRepository;
 import com.hecttoy.authserver.security.JwtTokenProvider;
+import com.hecttoy.authserver.security.OpaqueToken;
+import com.hecttoy.authserver.security.PasswordHashingExecutor;
+import com.hecttoy.authserver.security.TokenVersionChangedEvent;
+import com.hecttoy.authserver.security.VerifiedToken;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.beans.factory.annotation.Value;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
 
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.stream.Collectors;
 
+/**
+ * Transactions are declared per method. {@link #login} and {@link #register} run BCrypt, which
+ * takes tens of milliseconds, so they hash outside any transaction and only hold a pooled
+ * connection for their short reads and writes. The hashing itself runs on the bounded
+ * {@link PasswordHashingExecutor}.
+ */
 @Service
 @Slf4j
-@Transactional
 public class AuthService {
 
     @Autowired
@@ -35,61 +50,89 @@ public class AuthService {
     @Autowired
     private RefreshTokenRepository refreshTokenRepository;
 
+    @Autowired
+    private DefaultRole defaultRole;
+
+    @Autowired
+    private UserExistenceFilter userExistenceFilter;
+
     @Autowired
     private JwtTokenProvider jwtTokenProvider;
 
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private PasswordHashingExecutor passwordHashingExecutor;
 
-    public UserInfoResponse register(RegisterRequest registerRequest) {
-        log.info("Registering new user with username: {}", registerRequest.getUsername());
+    @Autowired
+    private AccessTokenRevocationService accessTokenRevocationService;
 
-        if (userRepository.existsByUsername(registerRequest.getUsername())) {
-            throw new AuthException(409, "Username already exists");
-        }
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
 
-        if (userRepository.existsByEmail(registerRequest.getEmail())) {
-            throw new AuthException(409, "Email already exists");
-        }
+    @Autowired
+    private TransactionTemplate transactionTemplate;
 
-        Role defaultRole = roleRepository.findByName("USER")
-            .orElseGet(() -> roleRepository.save(Role.builder()
-                .name("USER")
-                .description("Default user role")
-                .build()));
+    @Value("${app.maxSessionsPerUser:5}")
+    private int maxSessionsPerUser;
 
-        User user = User.builder()
-            .username(registerRequest.getUsername())
-            .email(registerRequest.getEmail())
-            .password(passwordEncoder.encode(registerRequest.getPassword()))
-            .firstName(registerRequest.getFirstName())
-            .lastName(registerRequest.getLastName())
-            .active(true)
-            .roles(new HashSet<>(Collections.singletonList(defaultRole)))
-            .build();
+    /**
+     * Inserts the user in a single round trip and lets the unique constraints on username and
+     * email reject duplicates, instead of checking for them first.
+     */
+    public UserInfoResponse register(RegisterRequest registerRequest) {
+        log.info("Registering new user with username: {}", registerRequest.getUsername());
 
-        User savedUser = userRepository.save(user);
+        String passwordHash = passwordHashingExecutor.encode(registerRequest.getPassword());
+
+        User savedUser;
+        try {
+            // The role reference must belong to the persistence context that saves the user
+            savedUser = transactionTemplate.execute(status -> userRepository.saveAndFlush(User.builder()
+                .username(registerRequest.getUsername())
+                .email(registerRequest.getEmail())
+                .password(passwordHash)
+                .firstName(registerRequest.getFirstName())
+                .lastName(registerRequest.getLastName())
+                .active(true)
+                .roles(new HashSet<>(Collections.singletonList(roleRepository.getReferenceById(defaultRole.getId()))))
+                .build()));
+        } catch (DataIntegrityViolationException e) {
+            throw translateDuplicate(e);
+        }
+        userExistenceFilter.add(savedUser.getEmail(), savedUser.getUsername());
         log.info("User registered successfully with id: {}", savedUser.getId());
 
-        return mapUserToResponse(savedUser);
+        return mapUserToResponse(savedUser, Set.of(defaultRole.getName()));
     }
 
     public TokenResponse login(LoginRequest loginRequest) {
         log.info("Login attempt for email: {}", loginRequest.getEmail());
 
-        User user = userRepository.findByEmail(loginRequest.getEmail())
-            .orElseThrow(() -> new AuthException(401, "Invalid email or password"));
+        if (!userExistenceFilter.mightHaveEmail(loginRequest.getEmail())) {
+            throw new AuthException(401, "Invalid email or password");
+        }
+        User user = userRepository.findWithRolesByEmail(loginRequest.getEmail())
+            .orElseThrow(() -> {
+                userExistenceFilter.recordEmailFalsePositive();
+                return new AuthException(401, "Invalid email or password");
+            });
 
         if (!user.getActive()) {
             throw new AuthException(403, "User account is inactive");
         }
 
-        if (!passwordEncoder.matches(loginRequest.getPassword(), user.getPassword())) {
+        if (!passwordHashingExecutor.matches(loginRequest.getPassword(), user.getPassword())) {
             throw new AuthException(401, "Invalid email or password");
         }
+        passwordHashingExecutor.upgradeLater(loginRequest.getPassword(), user.getPassword(), newHash ->
+            transactionTemplate.executeWithoutResult(status ->
+                userRepository.updatePasswordHash(user.getId(), user.getPassword(), newHash)));
 
-        String accessToken = generateAccessToken(user);
-        String refreshToken = generateRefreshToken(user);
+        String deviceId = StringUtils.hasText(loginRequest.getDeviceId())
+            ? loginRequest.getDeviceId()
+            : UUID.randomUUID().toString();
+
+        String accessToken = generateAccessToken(user, deviceId);
+        String refreshToken = transactionTemplate.execute(status -> startSession(user, deviceId));
 
         log.info("User {} logged in successfully", user.getEmail());
 
@@ -99,60 +142,175 @@ public class AuthService {
             .tokenType("Bearer")
             .expiresIn(900L) // 15 minutes
             .scope("read write")
+            .deviceId(deviceId)
             .build();
     }
 
+    /**
+     * Rotates the refresh token: the presented token is consumed by a single conditional UPDATE
+     * and a new one is issued. Rejections keep their side effects (reuse revocation) committed.
+     */
+    @Transactional(noRollbackFor = TokenException.class)
     public TokenResponse refresh(RefreshTokenRequest refreshTokenRequest) {
         log.info("Refreshing access token");
 
-        RefreshToken refreshToken = refreshTokenRepository.findByToken(refreshTokenRequest.getRefreshToken())
-            .orElseThrow(() -> new TokenException("Invalid refresh token"));
-
-        if (refreshToken.isExpired() || refreshToken.getRevoked()) {
-            throw new TokenException("Refresh token is expired or revoked");
+        byte[] tokenHash = OpaqueToken.digest(refreshTokenRequest.getRefreshToken());
+        if (refreshTokenRepository.consume(tokenHash, LocalDateTime.now()) == 0) {
+            throw rejectRefreshToken(tokenHash);
         }
 
-        User user = refreshToken.getUser();
+        RefreshToken consumed = refreshTokenRepository.findWithUserByTokenHash(tokenHash)
+            .orElseThrow(() -> new TokenException("Invalid refresh token"));
+        User user = consumed.getUser();
         if (!user.getActive()) {
             throw new AuthException(403, "User account is inactive");
         }
 
-        String newAccessToken = generateAccessToken(user);
+        String newAccessToken = generateAccessToken(user, consumed.getDeviceId());
+        String newRefreshToken = issueRefreshToken(user, consumed.getDeviceId());
         log.info("Access token refreshed for user: {}", user.getEmail());
 
         return TokenResponse.builder()
             .accessToken(newAccessToken)
-            .refreshToken(refreshTokenRequest.getRefreshToken())
+            .refreshToken(newRefreshToken)
             .tokenType("Bearer")
             .expiresIn(900L) // 15 minutes
             .scope("read write")
+            .deviceId(consumed.getDeviceId())
             .build();
     }
 
-    public void logout(LogoutRequest logoutRequest) {
+    /**
+     * Revokes the refresh token and, when the caller authenticated with one, the access token too.
+     */
+    @Transactional
+    public void logout(LogoutRequest logoutRequest, VerifiedToken accessToken) {
         log.info("Logout attempt");
 
-        RefreshToken refreshToken = refreshTokenRepository.findByToken(logoutRequest.getRefreshToken())
-            .orElseThrow(() -> new TokenException("Invalid refresh token"));
-
-        refreshToken.setRevoked(true);
-        refreshTokenRepository.save(refreshToken);
+        if (refreshTokenRepository.revokeByTokenHash(OpaqueToken.digest(logoutRequest.getRefreshToken())) == 0) {
+            throw new TokenException("Invalid refresh token");
+        }
+        if (accessToken != null) {
+            accessTokenRevocationService.revoke(accessToken);
+        }
         log.info("User logged out successfully");
     }
 
+    @Transactional(readOnly = true)
+    public List<SessionResponse> getSessions(String username) {
+        return refreshTokenRepository.findActiveByUsername(username, LocalDateTime.now()).stream()
+            .map(token -> SessionResponse.builder()
+                .deviceId(token.getDeviceId())
+                .lastUsedAt(token.getCreatedAt())
+                .expiresAt(token.getExpiryDate())
+                .build())
+            .collect(Collectors.toList());
+    }
+
+    @Transactional
+    public void revokeSession(String username, String deviceId) {
+        if (refreshTokenRepository.revokeByUsernameAndDeviceId(username, deviceId) == 0) {
+            throw new ResourceNotFoundException("Session not found");
+        }
+        log.info("Session {} revoked for user: {}", deviceId, username);
+    }
+
+    /**
+     * Signs the user out everywhere: revokes every session and invalidates every access token.
+     */
+    @Transactional
+    public void revokeAllSessions(String username) {
+        int revoked = refreshTokenRepository.revokeAllByUsername(username);
+        userRepository.findIdByUsername(username).ifPresent(this::invalidateTokens);
+        log.info("Revoked {} sessions for user: {}", revoked, username);
+    }
+
+    /**
+     * Disables the account and invalidates its access tokens at once; its refresh tokens are then
+     * refused by {@link #refresh}.
+     */
+    @Transactional
+    public UserInfoResponse deactivateUser(Long userId) {
+        User user = userRepository.findById(userId)
+            .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        user.setActive(false);
+        userRepository.flush();
+        invalidateTokens(userId);
+        log.info("User id {} deactivated", userId);
+        return mapUserToResponse(userRepository.findById(userId).orElseThrow());
+    }
+
+    /**
+     * Replaces the user's roles and invalidates its access tokens, so the old roles stop being
+     * honoured before the tokens expire.
+     */
+    @Transactional
+    public UserInfoResponse updateRoles(Long userId, Set<String> roleNames) {
+        User user = userRepository.findById(userId)
+            .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        Set<Role> roles = new HashSet<>();
+        for (String roleName : roleNames) {
+            roles.add(roleRepository.findByName(roleName)
+                .orElseThrow(() -> new ResourceNotFoundException("Role not found: " + roleName)));
+        }
+        user.getRoles().clear();
+        user.getRoles().addAll(roles);
+        userRepository.flush();
+        invalidateTokens(userId);
+        log.info("Roles of user id {} set to {}", userId, roleNames);
+        return mapUserToResponse(userRepository.findById(userId).orElseThrow());
+    }
+
+    /**
+     * Bumps the user's token version so every access token issued so far is rejected. Called by
+     * {@link #revokeAllSessions}, {@link #deactivateUser} and {@link #updateRoles}; any other path
+     * that disables a user or changes their roles must call it too.
+     */
+    @Transactional
+    public void invalidateTokens(Long userId) {
+        if (userRepository.incrementTokenVersion(userId) == 0) {
+            throw new ResourceNotFoundException("User not found");
+        }
+        long tokenVersion = userRepository.findTokenVersionById(userId).orElseThrow();
+        eventPublisher.publishEvent(new TokenVersionChangedEvent(userId, tokenVersion));
+        log.info("Access tokens of user id {} invalidated, token version is now {}", userId, tokenVersion);
+    }
+
+    @Transactional(readOnly = true)
     public UserInfoResponse getUserInfo(String username) {
         log.info("Fetching user info for username: {}", username);
 
-        User user = userRepository.findByUsername(username)
+        User user = userRepository.findWithRolesByUsername(username)
             .orElseThrow(() -> new ResourceNotFoundException("User not found"));
 
         return mapUserToResponse(user);
     }
 
-    private String generateAccessToken(User user) {
+    /**
+     * Builds the user info from an already verified access token, without touching the database.
+     */
+    public UserInfoResponse getUserInfo(VerifiedToken token) {
+        return UserInfoResponse.builder()
+            .id(token.userId())
+            .username(token.subject())
+            .email(token.email())
+            .firstName(token.firstName())
+            .lastName(token.lastName())
+            .active(true)
+            .roles(new HashSet<>(token.roles()))
+            .profileVersion(token.profileVersion())
+            .build();
+    }
+
+    private String generateAccessToken(User user, String deviceId) {
         Map<String, Object> claims = new HashMap<>();
         claims.put("id", user.getId());
+        claims.put("sid", deviceId);
         claims.put("email", user.getEmail());
+        claims.put("firstName", user.getFirstName());
+        claims.put("lastName", user.getLastName());
+        claims.put("pv", user.getProfileVersion());
+        claims.put("tv", user.getTokenVersion());
         claims.put("roles", user.getRoles().stream()
             .map(Role::getName)
             .collect(Collectors.toList()));
@@ -160,17 +318,53 @@ public class AuthService {
         return jwtTokenProvider.generateAccessToken(user.getUsername(), claims);
     }
 
-    private String generateRefreshToken(User user) {
-        String token = jwtTokenProvider.generateRefreshToken(user.getUsername());
+    /**
+     * Explains why a refresh token could not be consumed. A token that was already rotated or
+     * revoked but has not expired yet can only be presented again if it leaked, so the whole
+     * session (every token of that user and device) is revoked as well.
+     */
+    private TokenException rejectRefreshToken(byte[] tokenHash) {
+        Optional<RefreshToken> refreshToken = refreshTokenRepository.findByTokenHash(tokenHash);
+        if (refreshToken.isEmpty()) {
+            return new TokenException("Invalid refresh token");
+        }
+
+        RefreshToken token = refreshToken.get();
+        if (token.getRevoked() && !token.isExpired()) {
+            Long userId = token.getUser().getId();
+            refreshTokenRepository.revokeByUserIdAndDeviceId(userId, token.getDeviceId());
+            log.warn("Refresh token reuse detected for user id {}, device {}: session revoked", userId, token.getDeviceId());
+            return new TokenException("Refresh token reuse detected");
+        }
+
+        return new TokenException("Refresh token is expired or revoked");
+    }
+
+    /**
+     * Starts a session for the device, replacing only that device's previous session, then
+     * revokes the least recently used sessions beyond {@code app.maxSessionsPerUser}.
+     */
+    private String startSession(User user, String deviceId) {
+        refreshTokenRepository.revokeByUserIdAndDeviceId(user.getId(), deviceId);
+        String token = issueRefreshToken(user, deviceId);
+
+        List<String> activeDevices = refreshTokenRepository.findActiveDeviceIds(user.getId(), LocalDateTime.now());
+        if (activeDevices.size() > maxSessionsPerUser) {
+            List<String> evicted = activeDevices.subList(maxSessionsPerUser, activeDevices.size());
+            refreshTokenRepository.revokeByUserIdAndDeviceIdIn(user.getId(), evicted);
+            log.info("Evicted {} oldest sessions for user: {}", evicted.size(), user.getEmail());
+        }
+        return token;
+    }
 
-        // Revoke old refresh tokens
-        refreshTokenRepository.deleteByUserId(user.getId());
+    private String issueRefreshToken(User user, String deviceId) {
+        String token = OpaqueToken.generate();
 
-        // Save new refresh token
         RefreshToken refreshToken = RefreshToken.builder()
-            .token(token)
+            .tokenHash(OpaqueToken.digest(token))
             .user(user)
-            .expiryDate(LocalDateTime.now().plusDays(7))
+            .deviceId(deviceId)
+            .expiryDate(LocalDateTime.now().plus(jwtTokenProvider.getRefreshTokenExpiration(), ChronoUnit.MILLIS))
             .revoked(false)
             .build();
 
@@ -178,7 +372,31 @@ public class AuthService {
         return token;
     }
 
+    /**
+     * Maps a unique constraint violation on registration to the matching 409, by constraint name
+     * or, when the driver does not report one, by the column named in its message.
+     */
+    private RuntimeException translateDuplicate(DataIntegrityViolationException e) {
+        String constraint = e.getCause() instanceof ConstraintViolationException violation
+            ? violation.getConstraintName() : null;
+        String detail = (constraint != null ? constraint : String.valueOf(e.getMostSpecificCause().getMessage()))
+            .toLowerCase(Locale.ROOT);
+        if (detail.contains(User.USERNAME_CONSTRAINT) || detail.contains("(username")) {
+            return new AuthException(409, "Username already exists");
+        }
+        if (detail.contains(User.EMAIL_CONSTRAINT) || detail.contains("(email")) {
+            return new AuthException(409, "Email already exists");
+        }
+        return e;
+    }
+
     private UserInfoResponse mapUserToResponse(User user) {
+        return mapUserToResponse(user, user.getRoles().stream()
+            .map(Role::getName)
+            .collect(Collectors.toSet()));
+    }
+
+    private UserInfoResponse mapUserToResponse(User user, Set<String> roles) {
         return UserInfoResponse.builder()
             .id(user.getId())
             .username(user.getUsername())
@@ -186,11 +404,10 @@ public class AuthService {
             .firstName(user.getFirstName())
             .lastName(user.getLastName())
             .active(user.getActive())
-            .roles(user.getRoles().stream()
-                .map(Role::getName)
-                .collect(Collectors.toSet()))
+            .roles(roles)
             .createdAt(user.getCreatedAt())
             .updatedAt(user.getUpdatedAt())
+            .profileVersion(user.getProfileVersion())
             .build();
     }
 }
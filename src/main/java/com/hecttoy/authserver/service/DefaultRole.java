@@ -0,0 +1,55 @@
+package com.hecttoy.authserver.service;
+
+import com.hecttoy.authserver.model.Role;
+import com.hecttoy.authserver.repository.RoleRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+/**
+ * The role every new user gets, resolved once at startup so registration never looks it up.
+ * Creates it on an empty database; if another instance creates it first, its row is used.
+ */
+@Component
+@Slf4j
+public class DefaultRole {
+
+    public static final String NAME = "USER";
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    private Long id;
+
+    @PostConstruct
+    public void init() {
+        id = roleRepository.findByName(NAME)
+            .or(this::create)
+            .map(Role::getId)
+            .orElseThrow(() -> new IllegalStateException("Default role " + NAME + " could not be created"));
+        log.info("Default role {} has id {}", NAME, id);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return NAME;
+    }
+
+    private Optional<Role> create() {
+        try {
+            return Optional.of(roleRepository.save(Role.builder()
+                .name(NAME)
+                .description("Default user role")
+                .build()));
+        } catch (DataIntegrityViolationException e) {
+            return roleRepository.findByName(NAME);
+        }
+    }
+}
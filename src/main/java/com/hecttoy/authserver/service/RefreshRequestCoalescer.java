@@ -0,0 +1,110 @@
+package com.hecttoy.authserver.service;
+
+import com.hecttoy.authserver.dto.RefreshTokenRequest;
+import com.hecttoy.authserver.dto.TokenResponse;
+import com.hecttoy.authserver.exception.ServiceUnavailableException;
+import com.hecttoy.authserver.security.OpaqueToken;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Single-flight wrapper around {@link AuthService#refresh}: concurrent refreshes of the same token
+ * share one rotation, and repeats within {@code app.refreshGraceWindow} ms get the same response
+ * instead of tripping reuse detection. Failures, including {@link Error}s, are shared with waiting
+ * callers but never kept. Waiters give up after {@code app.refreshWaitTimeout} ms with a 503.
+ *
+ * <p>Coalescing is per instance; requests spread across instances still rotate once and the
+ * losers are rejected by the conditional UPDATE.
+ */
+@Component
+public class RefreshRequestCoalescer {
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.refreshGraceWindow:5000}")
+    private long graceWindowMillis;
+
+    @Value("${app.refreshWaitTimeout:10000}")
+    private long waitTimeoutMillis;
+
+    private final ConcurrentMap<ByteBuffer, CompletableFuture<TokenResponse>> flights = new ConcurrentHashMap<>();
+
+    private Counter coalesced;
+
+    @PostConstruct
+    public void init() {
+        coalesced = Counter.builder("auth.refresh.coalesced")
+            .description("Refresh requests answered by an in-flight or just completed rotation")
+            .register(meterRegistry);
+    }
+
+    public TokenResponse refresh(RefreshTokenRequest refreshTokenRequest) {
+        ByteBuffer key = ByteBuffer.wrap(OpaqueToken.digest(refreshTokenRequest.getRefreshToken()));
+        CompletableFuture<TokenResponse> flight = new CompletableFuture<>();
+
+        CompletableFuture<TokenResponse> existing = flights.putIfAbsent(key, flight);
+        if (existing != null) {
+            coalesced.increment();
+            return await(existing);
+        }
+
+        try {
+            TokenResponse response = authService.refresh(refreshTokenRequest);
+            flight.complete(response);
+            forgetLater(key, flight);
+            return response;
+        } catch (Throwable e) {
+            flight.completeExceptionally(e);
+            flights.remove(key, flight);
+            throw e;
+        }
+    }
+
+    int inFlight() {
+        return flights.size();
+    }
+
+    private void forgetLater(ByteBuffer key, CompletableFuture<TokenResponse> flight) {
+        if (graceWindowMillis <= 0) {
+            flights.remove(key, flight);
+            return;
+        }
+        CompletableFuture.delayedExecutor(graceWindowMillis, TimeUnit.MILLISECONDS)
+            .execute(() -> flights.remove(key, flight));
+    }
+
+    private TokenResponse await(CompletableFuture<TokenResponse> flight) {
+        try {
+            return flight.get(waitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new ServiceUnavailableException("Token refresh is taking too long, try again", 1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Token refresh was interrupted, try again", 1);
+        }
+    }
+}
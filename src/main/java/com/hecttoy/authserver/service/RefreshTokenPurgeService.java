@@ -0,0 +1,83 @@
+package com.hecttoy.authserver.service;
+
+import com.hecttoy.authserver.repository.RefreshTokenRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.function.IntSupplier;
+
+/**
+ * Deletes expired refresh tokens in chunks of {@code app.refreshTokenPurgeChunkSize}. Revoked tokens are only
+ * deleted once they have expired too, because reuse detection needs them until then; they are counted under
+ * {@code reason=revoked}, all other expired tokens under {@code reason=expired}. Every chunk is a single set-based DELETE in its own short transaction, so the purge never holds
+ * row locks long enough to stall logins running alongside it.
+ */
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "app.refreshTokenPurgeEnabled", havingValue = "true", matchIfMissing = true)
+public class RefreshTokenPurgeService {
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.refreshTokenPurgeChunkSize:1000}")
+    private int chunkSize;
+
+    private Counter expiredPurged;
+
+    private Counter revokedPurged;
+
+    private Timer purgeTimer;
+
+    @PostConstruct
+    public void init() {
+        expiredPurged = Counter.builder("auth.refresh.purge.rows")
+            .description("Refresh tokens deleted by the background purge")
+            .tag("reason", "expired")
+            .register(meterRegistry);
+        revokedPurged = Counter.builder("auth.refresh.purge.rows")
+            .description("Refresh tokens deleted by the background purge")
+            .tag("reason", "revoked")
+            .register(meterRegistry);
+        purgeTimer = Timer.builder("auth.refresh.purge.duration")
+            .description("Time spent per purge run")
+            .register(meterRegistry);
+    }
+
+    @Scheduled(initialDelayString = "${app.refreshTokenPurgeInitialDelay:60000}",
+        fixedDelayString = "${app.refreshTokenPurgeInterval:3600000}")
+    public void purge() {
+        purgeTimer.record(() -> {
+            LocalDateTime now = LocalDateTime.now();
+            long revoked = purgeInChunks(() -> refreshTokenRepository.deleteRevokedBatch(now, chunkSize), revokedPurged);
+            long expired = purgeInChunks(() -> refreshTokenRepository.deleteExpiredBatch(now, chunkSize), expiredPurged);
+
+            if (expired + revoked > 0) {
+                log.info("Purged {} expired and {} revoked refresh tokens", expired, revoked);
+            }
+        });
+    }
+
+    private long purgeInChunks(IntSupplier deleteChunk, Counter counter) {
+        long total = 0;
+        int deleted;
+        do {
+            deleted = deleteChunk.getAsInt();
+            counter.increment(deleted);
+            total += deleted;
+        } while (deleted == chunkSize);
+        return total;
+    }
+}
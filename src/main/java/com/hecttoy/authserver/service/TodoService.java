@@ -5,7 +5,6 @@ import com.hecttoy.authserver.dto.TodoResponse;
 import com.hecttoy.authserver.dto.UpdateTodoRequest;
 import com.hecttoy.authserver.exception.ResourceNotFoundException;
 import com.hecttoy.authserver.model.Todo;
-import com.hecttoy.authserver.model.User;
 import com.hecttoy.authserver.repository.TodoRepository;
 import com.hecttoy.authserver.repository.UserRepository;
 import lombok.extern.slf4j.Slf4j;
@@ -30,15 +29,14 @@ public class TodoService {
     public TodoResponse createTodo(String username, CreateTodoRequest request) {
         log.info("Creating todo for user: {}", username);
 
-        User user = userRepository.findByUsername(username)
-            .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        Long userId = findUserId(username);
 
         Todo todo = Todo.builder()
             .title(request.getTitle())
             .description(request.getDescription())
             .priority(request.getPriority() != null ? request.getPriority() : 0)
             .completed(false)
-            .user(user)
+            .user(userRepository.getReferenceById(userId))
             .build();
 
         Todo savedTodo = todoRepository.save(todo);
@@ -50,10 +48,9 @@ public class TodoService {
     public TodoResponse getTodo(String username, Long todoId) {
         log.info("Fetching todo {} for user: {}", todoId, username);
 
-        User user = userRepository.findByUsername(username)
-            .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        Long userId = findUserId(username);
 
-        Todo todo = todoRepository.findByIdAndUserId(todoId, user.getId())
+        Todo todo = todoRepository.findByIdAndUserId(todoId, userId)
             .orElseThrow(() -> new ResourceNotFoundException("Todo not found"));
 
         return mapTodoToResponse(todo);
@@ -62,10 +59,9 @@ public class TodoService {
     public List<TodoResponse> getAllTodos(String username) {
         log.info("Fetching all todos for user: {}", username);
 
-        User user = userRepository.findByUsername(username)
-            .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        Long userId = findUserId(username);
 
-        List<Todo> todos = todoRepository.findByUserId(user.getId());
+        List<Todo> todos = todoRepository.findByUserId(userId);
 
         return todos.stream()
             .map(this::mapTodoToResponse)
@@ -75,10 +71,9 @@ public class TodoService {
     public List<TodoResponse> getCompletedTodos(String username, Boolean completed) {
         log.info("Fetching completed={} todos for user: {}", completed, username);
 
-        User user = userRepository.findByUsername(username)
-            .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        Long userId = findUserId(username);
 
-        List<Todo> todos = todoRepository.findByUserIdAndCompleted(user.getId(), completed);
+        List<Todo> todos = todoRepository.findByUserIdAndCompleted(userId, completed);
 
         return todos.stream()
             .map(this::mapTodoToResponse)
@@ -88,10 +83,9 @@ public class TodoService {
     public TodoResponse updateTodo(String username, Long todoId, UpdateTodoRequest request) {
         log.info("Updating todo {} for user: {}", todoId, username);
 
-        User user = userRepository.findByUsername(username)
-            .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        Long userId = findUserId(username);
 
-        Todo todo = todoRepository.findByIdAndUserId(todoId, user.getId())
+        Todo todo = todoRepository.findByIdAndUserId(todoId, userId)
             .orElseThrow(() -> new ResourceNotFoundException("Todo not found"));
 
         if (request.getTitle() != null) {
@@ -116,16 +110,23 @@ public class TodoService {
     public void deleteTodo(String username, Long todoId) {
         log.info("Deleting todo {} for user: {}", todoId, username);
 
-        User user = userRepository.findByUsername(username)
-            .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        Long userId = findUserId(username);
 
-        Todo todo = todoRepository.findByIdAndUserId(todoId, user.getId())
+        Todo todo = todoRepository.findByIdAndUserId(todoId, userId)
             .orElseThrow(() -> new ResourceNotFoundException("Todo not found"));
 
         todoRepository.delete(todo);
         log.info("Todo {} deleted", todoId);
     }
 
+    /**
+     * Todos only need the owner's id, so the user row and its roles are never loaded.
+     */
+    private Long findUserId(String username) {
+        return userRepository.findIdByUsername(username)
+            .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+    }
+
     private TodoResponse mapTodoToResponse(Todo todo) {
         return TodoResponse.builder()
             .id(todo.getId())
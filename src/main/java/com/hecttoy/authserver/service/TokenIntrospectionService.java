@@ -0,0 +1,183 @@
+package com.hecttoy.authserver.service;
+
+import com.hecttoy.authserver.dto.IntrospectionResponse;
+import com.hecttoy.authserver.model.RefreshToken;
+import com.hecttoy.authserver.repository.RefreshTokenRepository;
+import com.hecttoy.authserver.repository.RefreshTokenRepository.SessionKey;
+import com.hecttoy.authserver.security.JwtTokenProvider;
+import com.hecttoy.authserver.security.OpaqueToken;
+import com.hecttoy.authserver.security.TokenVersionCache;
+import com.hecttoy.authserver.security.VerifiedToken;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * RFC 7662 introspection of access and refresh tokens. A batch costs at most two queries whatever
+ * its size: one for the refresh tokens and one for the sessions behind the access tokens.
+ *
+ * <p>Access token signatures are checked through {@link JwtTokenProvider#verifyToken}, so repeated
+ * introspection of the same token is served from the {@code VerifiedTokenCache} (keyed by token
+ * digest, entries live until {@code exp}). Revocation is never cached: an access token that is on
+ * the denylist, whose session ({@code sid} claim) was logged out or revoked, or whose token
+ * version ({@code tv} claim) is no longer the user's, is reported as {@code revoked}, exactly as
+ * {@code JwtAuthenticationFilter} would reject it.
+ */
+@Service
+@Slf4j
+@Transactional(readOnly = true)
+public class TokenIntrospectionService {
+
+    @Autowired
+    private JwtTokenProvider jwtTokenProvider;
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Autowired
+    private AccessTokenRevocationService accessTokenRevocationService;
+
+    @Autowired
+    private TokenVersionCache tokenVersionCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Counter activeTokens;
+    private Counter inactiveTokens;
+
+    @PostConstruct
+    public void init() {
+        activeTokens = Counter.builder("auth.introspect.tokens")
+            .tag("result", "active")
+            .register(meterRegistry);
+        inactiveTokens = Counter.builder("auth.introspect.tokens")
+            .tag("result", "inactive")
+            .register(meterRegistry);
+    }
+
+    public IntrospectionResponse introspect(String token) {
+        return introspect(List.of(token)).get(0);
+    }
+
+    /**
+     * @return one response per token, in request order
+     */
+    public List<IntrospectionResponse> introspect(List<String> tokens) {
+        IntrospectionResponse[] results = new IntrospectionResponse[tokens.size()];
+        Map<Integer, VerifiedToken> accessTokens = new HashMap<>();
+        Map<Integer, ByteBuffer> refreshTokens = new HashMap<>();
+
+        for (int i = 0; i < tokens.size(); i++) {
+            String token = tokens.get(i);
+            if (isJwt(token)) {
+                VerifiedToken verified = jwtTokenProvider.verifyToken(token);
+                if (verified == null || verified.isExpired()) {
+                    results[i] = IntrospectionResponse.inactive();
+                } else {
+                    accessTokens.put(i, verified);
+                }
+            } else {
+                refreshTokens.put(i, ByteBuffer.wrap(OpaqueToken.digest(token)));
+            }
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        introspectAccessTokens(accessTokens, now, results);
+        introspectRefreshTokens(refreshTokens, now, results);
+
+        for (IntrospectionResponse result : results) {
+            (result.isActive() ? activeTokens : inactiveTokens).increment();
+        }
+        log.debug("Introspected {} tokens ({} access, {} refresh)", tokens.size(), accessTokens.size(), refreshTokens.size());
+        return List.of(results);
+    }
+
+    private void introspectAccessTokens(Map<Integer, VerifiedToken> accessTokens, LocalDateTime now,
+                                        IntrospectionResponse[] results) {
+        if (accessTokens.isEmpty()) {
+            return;
+        }
+
+        Set<Long> userIds = new HashSet<>();
+        accessTokens.values().forEach(token -> userIds.add(token.userId()));
+        Set<String> liveSessions = new HashSet<>();
+        for (SessionKey session : refreshTokenRepository.findActiveSessionKeys(userIds, now)) {
+            liveSessions.add(sessionKey(session.getUserId(), session.getDeviceId()));
+        }
+
+        accessTokens.forEach((i, token) -> {
+            // Tokens issued before the sid claim existed cannot be tied to a session
+            boolean revoked = accessTokenRevocationService.isRevoked(token) || !tokenVersionCache.isCurrent(token)
+                || token.deviceId() != null && !liveSessions.contains(sessionKey(token.userId(), token.deviceId()));
+            results[i] = revoked ? IntrospectionResponse.revoked() : IntrospectionResponse.builder()
+                .active(true)
+                .revoked(false)
+                .tokenType("access_token")
+                .scope("read write")
+                .username(token.subject())
+                .sub(token.subject())
+                .exp(token.expiresAt().getEpochSecond())
+                .jti(token.jti())
+                .roles(token.roles())
+                .deviceId(token.deviceId())
+                .build();
+        });
+    }
+
+    private void introspectRefreshTokens(Map<Integer, ByteBuffer> refreshTokens, LocalDateTime now,
+                                         IntrospectionResponse[] results) {
+        if (refreshTokens.isEmpty()) {
+            return;
+        }
+
+        List<byte[]> hashes = new ArrayList<>(refreshTokens.size());
+        refreshTokens.values().forEach(hash -> hashes.add(hash.array()));
+        Map<ByteBuffer, RefreshToken> found = new HashMap<>();
+        for (RefreshToken token : refreshTokenRepository.findWithUserByTokenHashIn(hashes)) {
+            found.put(ByteBuffer.wrap(token.getTokenHash()), token);
+        }
+
+        refreshTokens.forEach((i, hash) -> {
+            RefreshToken token = found.get(hash);
+            if (token == null || !token.getExpiryDate().isAfter(now)) {
+                results[i] = IntrospectionResponse.inactive();
+            } else if (token.getRevoked()) {
+                results[i] = IntrospectionResponse.revoked();
+            } else {
+                results[i] = IntrospectionResponse.builder()
+                    .active(true)
+                    .revoked(false)
+                    .tokenType("refresh_token")
+                    .username(token.getUser().getUsername())
+                    .sub(token.getUser().getUsername())
+                    .exp(token.getExpiryDate().atZone(ZoneId.systemDefault()).toEpochSecond())
+                    .deviceId(token.getDeviceId())
+                    .build();
+            }
+        });
+    }
+
+    private static boolean isJwt(String token) {
+        int firstDot = token.indexOf('.');
+        return firstDot > 0 && token.indexOf('.', firstDot + 1) > firstDot;
+    }
+
+    private static String sessionKey(Long userId, String deviceId) {
+        return userId + ":" + deviceId;
+    }
+}
@@ -0,0 +1,302 @@
+package com.hecttoy.authserver.service;
+
+import com.hecttoy.authserver.repository.UserRepository;
+import com.hecttoy.authserver.repository.UserRepository.UserIdentity;
+import com.hecttoy.authserver.security.BloomFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * Bloom filters over every registered email and username, so lookups of unknown accounts (mostly
+ * credential stuffing against login) are answered without a full user lookup. A hit still goes
+ * to the database, and a hit the database does not confirm is counted as a false positive.
+ *
+ * <p>The filters are built on startup by paging through {@code users} and sized for
+ * {@code app.userFilterExpectedUsers} or twice the current count, whichever is larger. New users
+ * are added on register, and users registered on other instances are picked up every
+ * {@code app.userFilterSyncInterval} ms. A miss is only definite for users the filters have synced,
+ * so a miss also triggers that sync early, at most once per {@code app.userFilterCatchUpInterval} ms
+ * for all callers together, and re-checks the filter: a user registered on another instance can log
+ * in here within one catch-up interval, and a flood of unknown accounts costs no query per attempt.
+ * Users are never deleted, but {@link #rebuild()} can be triggered to shrink or regrow the filters.
+ */
+@Service
+@Slf4j
+public class UserExistenceFilter {
+
+    private static final int PAGE_SIZE = 5000;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.userFilterEnabled:true}")
+    private boolean enabled;
+
+    @Value("${app.userFilterExpectedUsers:100000}")
+    private long expectedUsers;
+
+    @Value("${app.userFilterFalsePositiveRate:0.01}")
+    private double falsePositiveRate;
+
+    @Value("${app.userFilterSyncInterval:10000}")
+    private long syncIntervalMillis;
+
+    @Value("${app.userFilterCatchUpInterval:1000}")
+    private long catchUpIntervalMillis;
+
+    private volatile Filters filters;
+    // Set while a rebuild is running, so users registered meanwhile land in both generations
+    private volatile Filters building;
+    private volatile LocalDateTime lastSync;
+    private volatile long lastCatchUp;
+    private final Object catchUpLock = new Object();
+
+    private Counter emailsAbsent;
+    private Counter emailsPresent;
+    private Counter emailsRecent;
+    private Counter emailFalsePositives;
+    private Counter usernamesAbsent;
+    private Counter usernamesPresent;
+    private Counter usernamesRecent;
+    private Counter usernameFalsePositives;
+
+    @PostConstruct
+    public void init() {
+        emailsAbsent = lookups("email", "absent");
+        emailsPresent = lookups("email", "present");
+        emailsRecent = recentLookups("email");
+        emailFalsePositives = falsePositives("email");
+        usernamesAbsent = lookups("username", "absent");
+        usernamesPresent = lookups("username", "present");
+        usernamesRecent = recentLookups("username");
+        usernameFalsePositives = falsePositives("username");
+        Gauge.builder("auth.userfilter.expected.fpp", this, filter -> filter.expectedFalsePositiveRate(true))
+            .tag("filter", "email")
+            .description("False positive rate expected from the filter's size and fill")
+            .register(meterRegistry);
+        Gauge.builder("auth.userfilter.expected.fpp", this, filter -> filter.expectedFalsePositiveRate(false))
+            .tag("filter", "username")
+            .description("False positive rate expected from the filter's size and fill")
+            .register(meterRegistry);
+        Gauge.builder("auth.userfilter.observed.fpp", this, filter -> observedFalsePositiveRate(emailFalsePositives, emailsAbsent))
+            .tag("filter", "email")
+            .description("Share of lookups for unknown accounts the filter let through")
+            .register(meterRegistry);
+        Gauge.builder("auth.userfilter.observed.fpp", this, filter -> observedFalsePositiveRate(usernameFalsePositives, usernamesAbsent))
+            .tag("filter", "username")
+            .description("Share of lookups for unknown accounts the filter let through")
+            .register(meterRegistry);
+
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Replaces the filters with new ones built from the whole {@code users} table.
+     *
+     * @return the number of users loaded
+     */
+    public synchronized long rebuild() {
+        if (!enabled) {
+            return 0;
+        }
+        LocalDateTime startedAt = LocalDateTime.now();
+        long capacity = Math.max(expectedUsers, userRepository.count() * 2);
+        Filters next = new Filters(new BloomFilter(capacity, falsePositiveRate), new BloomFilter(capacity, falsePositiveRate));
+        building = next;
+
+        long loaded = 0;
+        long afterId = 0;
+        List<UserIdentity> page;
+        do {
+            page = userRepository.findIdentitiesAfter(afterId, PageRequest.ofSize(PAGE_SIZE));
+            for (UserIdentity user : page) {
+                next.add(user.getEmail(), user.getUsername());
+                afterId = user.getId();
+            }
+            loaded += page.size();
+        } while (page.size() == PAGE_SIZE);
+
+        filters = next;
+        building = null;
+        lastSync = startedAt;
+        log.info("User existence filters rebuilt with {} users ({} bits each)", loaded, next.emails().bitSize());
+        return loaded;
+    }
+
+    public void add(String email, String username) {
+        Filters current = filters;
+        Filters next = building;
+        if (current != null) {
+            current.add(email, username);
+        }
+        if (next != null) {
+            next.add(email, username);
+        }
+    }
+
+    /**
+     * @return {@code false} only if no user has this email, as far as the last catch-up with other
+     *         instances knows
+     */
+    public boolean mightHaveEmail(String email) {
+        Filters current = filters;
+        if (current == null) {
+            return true;
+        }
+        if (current.emails().mightContain(email)) {
+            emailsPresent.increment();
+            return true;
+        }
+        if (catchUp() && filters.emails().mightContain(email)) {
+            emailsRecent.increment();
+            return true;
+        }
+        emailsAbsent.increment();
+        return false;
+    }
+
+    /**
+     * @return {@code false} only if no user has this username, as far as the last catch-up with other
+     *         instances knows
+     */
+    public boolean mightHaveUsername(String username) {
+        Filters current = filters;
+        if (current == null) {
+            return true;
+        }
+        if (current.usernames().mightContain(username)) {
+            usernamesPresent.increment();
+            return true;
+        }
+        if (catchUp() && filters.usernames().mightContain(username)) {
+            usernamesRecent.increment();
+            return true;
+        }
+        usernamesAbsent.increment();
+        return false;
+    }
+
+    /**
+     * Records that {@link #mightHaveEmail} let an email through that the database did not know.
+     */
+    public void recordEmailFalsePositive() {
+        if (filters != null) {
+            emailFalsePositives.increment();
+        }
+    }
+
+    /**
+     * Records that {@link #mightHaveUsername} let a username through that the database did not know.
+     */
+    public void recordUsernameFalsePositive() {
+        if (filters != null) {
+            usernameFalsePositives.increment();
+        }
+    }
+
+    /**
+     * Adds users registered on other instances since the last sync.
+     */
+    @Scheduled(initialDelayString = "${app.userFilterSyncInterval:10000}",
+        fixedDelayString = "${app.userFilterSyncInterval:10000}")
+    public void sync() {
+        if (filters == null) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<UserIdentity> created = userRepository.findIdentitiesCreatedSince(unsyncedSince());
+        created.forEach(user -> add(user.getEmail(), user.getUsername()));
+        lastSync = now;
+        if (!created.isEmpty()) {
+            log.debug("User existence filters synced {} users", created.size());
+        }
+    }
+
+    /**
+     * Runs {@link #sync()} on a filter miss unless one ran less than {@code app.userFilterCatchUpInterval}
+     * ms ago. Callers arriving during a catch-up wait for it instead of starting their own.
+     *
+     * @return {@code true} if the filters were synced since the caller's miss, so it is worth re-checking
+     */
+    private boolean catchUp() {
+        long missedAt = System.currentTimeMillis();
+        if (missedAt - lastCatchUp < catchUpIntervalMillis) {
+            return false;
+        }
+        synchronized (catchUpLock) {
+            if (lastCatchUp < missedAt) {
+                lastCatchUp = System.currentTimeMillis();
+                sync();
+            }
+            return true;
+        }
+    }
+
+    /**
+     * @return creation time from which users may be missing from the filters; overlaps one interval
+     *         so rows committed late, or by an instance with a skewed clock, are not missed
+     */
+    private LocalDateTime unsyncedSince() {
+        return lastSync.minus(syncIntervalMillis, ChronoUnit.MILLIS);
+    }
+
+    private double expectedFalsePositiveRate(boolean emails) {
+        Filters current = filters;
+        if (current == null) {
+            return Double.NaN;
+        }
+        return (emails ? current.emails() : current.usernames()).expectedFalsePositiveRate();
+    }
+
+    private static double observedFalsePositiveRate(Counter falsePositives, Counter absent) {
+        double unknown = falsePositives.count() + absent.count();
+        return unknown == 0 ? 0 : falsePositives.count() / unknown;
+    }
+
+    private Counter lookups(String filter, String result) {
+        return Counter.builder("auth.userfilter.lookups")
+            .tag("filter", filter)
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+
+    private Counter recentLookups(String filter) {
+        return Counter.builder("auth.userfilter.lookups")
+            .tag("filter", filter)
+            .tag("result", "recent")
+            .description("Filter misses found after catching up with users registered on other instances")
+            .register(meterRegistry);
+    }
+
+    private Counter falsePositives(String filter) {
+        return Counter.builder("auth.userfilter.false.positives")
+            .tag("filter", filter)
+            .description("Lookups the filter let through for accounts that do not exist")
+            .register(meterRegistry);
+    }
+
+    private record Filters(BloomFilter emails, BloomFilter usernames) {
+
+        void add(String email, String username) {
+            emails.put(email);
+            usernames.put(username);
+        }
+    }
+}
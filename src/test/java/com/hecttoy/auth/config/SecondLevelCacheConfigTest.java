@@ -0,0 +1,114 @@
+package com.hecttoy.auth.config;
+
+import com.hecttoy.auth.entity.Role;
+import com.hecttoy.auth.entity.User;
+import com.hecttoy.auth.repository.RoleRepository;
+import com.hecttoy.auth.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Sin transacción de test: la caché de segundo nivel solo se llena al confirmar
+@DataJpaTest
+@ActiveProfiles("h2")
+@Import(SecondLevelCacheConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SecondLevelCacheConfigTest {
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        roleRepository.save(Role.builder().name("USER").description("Usuario regular").build());
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        userRepository.deleteAll();
+        roleRepository.deleteAll();
+    }
+
+    @Test
+    void findByNameIsServedFromTheQueryCache() {
+        roleRepository.findByName("USER").orElseThrow();
+        roleRepository.findByName("USER").orElseThrow();
+
+        assertThat(statistics.getQueryCacheHitCount()).isEqualTo(1);
+        assertThat(statistics.getCacheRegionStatistics(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME)
+            .getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void userRolesAreServedFromTheCollectionCache() {
+        User user = transactionTemplate.execute(status -> userRepository.save(User.builder()
+            .name("John Doe")
+            .email("john@example.com")
+            .password("hash")
+            .enabled(true)
+            .roles(Set.of(roleRepository.findByName("USER").orElseThrow()))
+            .build()));
+
+        roleNames(user.getId());
+        statistics.clear();
+
+        assertThat(roleNames(user.getId())).containsExactly("USER");
+        assertThat(statistics.getCacheRegionStatistics(SecondLevelCacheConfig.USER_ROLES_REGION).getHitCount())
+            .isEqualTo(1);
+        assertThat(statistics.getCollectionLoadCount()).isZero();
+    }
+
+    @Test
+    void updatingARoleEvictsIt() {
+        Role role = roleRepository.findByName("USER").orElseThrow();
+        role.setDescription("Cambiado");
+        roleRepository.save(role);
+
+        assertThat(roleRepository.findByName("USER").orElseThrow().getDescription()).isEqualTo("Cambiado");
+        assertThat(roleRepository.findById(role.getId()).orElseThrow().getDescription()).isEqualTo("Cambiado");
+    }
+
+    @Test
+    void newRolesAreVisibleToCachedQueries() {
+        assertThat(roleRepository.findByName("ADMIN")).isEmpty();
+
+        roleRepository.save(Role.builder().name("ADMIN").description("Administrador").build());
+
+        assertThat(roleRepository.findByName("ADMIN")).isPresent();
+    }
+
+    private List<String> roleNames(Long userId) {
+        return transactionTemplate.execute(status -> userRepository.findById(userId).orElseThrow().getRoles().stream()
+            .map(Role::getName)
+            .toList());
+    }
+}
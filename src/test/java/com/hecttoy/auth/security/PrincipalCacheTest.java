@@ -0,0 +1,119 @@
+package com.hecttoy.auth.security;
+
+import com.hecttoy.auth.entity.Role;
+import com.hecttoy.auth.entity.User;
+import com.hecttoy.auth.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PrincipalCacheTest {
+
+    private static final String EMAIL = "john@example.com";
+
+    private UserRepository userRepository;
+    private PrincipalCache principalCache;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        principalCache = new PrincipalCache(userRepository);
+        ReflectionTestUtils.setField(principalCache, "ttlMillis", 60_000L);
+        ReflectionTestUtils.setField(principalCache, "maxSize", 100);
+    }
+
+    @Test
+    void loadsEachUserOncePerTtl() {
+        when(userRepository.findWithRolesByEmail(EMAIL)).thenReturn(Optional.of(user(true)));
+
+        AuthenticatedUser first = principalCache.get(EMAIL);
+        AuthenticatedUser second = principalCache.get(EMAIL);
+
+        assertThat(second).isSameAs(first);
+        assertThat(first.getName()).isEqualTo(EMAIL);
+        assertThat(first.authorities()).extracting("authority").containsExactly("ROLE_USER");
+        verify(userRepository, times(1)).findWithRolesByEmail(EMAIL);
+    }
+
+    @Test
+    void userChangeReloadsThePrincipal() {
+        when(userRepository.findWithRolesByEmail(EMAIL))
+            .thenReturn(Optional.of(user(true)))
+            .thenReturn(Optional.of(user(false)));
+        assertThat(principalCache.get(EMAIL).enabled()).isTrue();
+
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("principalCache", principalCache);
+        new PrincipalCacheInvalidator(beanFactory.getBeanProvider(PrincipalCache.class)).onChange(user(false));
+
+        assertThat(principalCache.get(EMAIL).enabled()).isFalse();
+    }
+
+    @Test
+    void userChangeEvictsAgainAfterCommit() {
+        when(userRepository.findWithRolesByEmail(EMAIL))
+            .thenReturn(Optional.of(user(true)))
+            .thenReturn(Optional.of(user(true)))
+            .thenReturn(Optional.of(user(false)));
+        principalCache.get(EMAIL);
+
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("principalCache", principalCache);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            new PrincipalCacheInvalidator(beanFactory.getBeanProvider(PrincipalCache.class)).onChange(user(false));
+            // A concurrent request reloads the row that is still committed
+            assertThat(principalCache.get(EMAIL).enabled()).isTrue();
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(principalCache.get(EMAIL).enabled()).isFalse();
+    }
+
+    @Test
+    void zeroTtlAlwaysReloads() {
+        ReflectionTestUtils.setField(principalCache, "ttlMillis", -1L);
+        when(userRepository.findWithRolesByEmail(EMAIL)).thenReturn(Optional.of(user(true)));
+
+        principalCache.get(EMAIL);
+        principalCache.get(EMAIL);
+
+        verify(userRepository, times(2)).findWithRolesByEmail(EMAIL);
+    }
+
+    @Test
+    void unknownUsersAreNotCached() {
+        when(userRepository.findWithRolesByEmail(EMAIL)).thenReturn(Optional.empty());
+
+        assertThat(principalCache.get(EMAIL)).isNull();
+        assertThat(principalCache.get(EMAIL)).isNull();
+
+        verify(userRepository, times(2)).findWithRolesByEmail(EMAIL);
+    }
+
+    private static User user(boolean enabled) {
+        return User.builder()
+            .id(1L)
+            .name("John Doe")
+            .email(EMAIL)
+            .password("hash")
+            .enabled(enabled)
+            .roles(Set.of(Role.builder().id(1L).name("USER").build()))
+            .build();
+    }
+}
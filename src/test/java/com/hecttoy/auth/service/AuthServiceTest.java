@@ -0,0 +1,122 @@
+package com.hecttoy.auth.service;
+
+import com.hecttoy.auth.dto.auth.AuthResponse;
+import com.hecttoy.auth.dto.auth.LoginRequest;
+import com.hecttoy.auth.dto.auth.RegisterRequest;
+import com.hecttoy.auth.exception.AuthException;
+import com.hecttoy.auth.security.JwtKeyRing;
+import com.hecttoy.auth.security.JwtTokenProvider;
+import com.hecttoy.auth.security.PasswordUpgrader;
+import com.hecttoy.auth.security.VerifiedTokenCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Sin SecondLevelCacheConfig las regiones no existen: se desactiva la caché en lugar de crearlas sin límite
+@DataJpaTest(properties = {"spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+    "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.hecttoy.auth.service.AuthServiceTest$SqlRecorder"})
+@ActiveProfiles("h2")
+@Import({AuthService.class, JwtTokenProvider.class, JwtKeyRing.class, VerifiedTokenCache.class,
+    PasswordUpgrader.class, AuthServiceTest.PasswordEncoderConfig.class})
+class AuthServiceTest {
+
+    private static final String EMAIL = "john@example.com";
+    private static final String PASSWORD = "Password123!";
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @BeforeEach
+    void setUp() {
+        authService.register(RegisterRequest.builder()
+            .name("John Doe")
+            .email(EMAIL)
+            .password(PASSWORD)
+            .passwordConfirm(PASSWORD)
+            .build());
+        entityManager.flush();
+        entityManager.clear();
+        SqlRecorder.STATEMENTS.clear();
+    }
+
+    @Test
+    void loginSelectsTheUserOnce() {
+        AuthResponse response = authService.login(login(PASSWORD));
+        entityManager.flush();
+
+        assertThat(response.getAccessToken()).isNotBlank();
+        assertThat(response.getUser().getRoles()).containsExactly("USER");
+        assertThat(SqlRecorder.selectsFrom("users")).hasSize(1);
+    }
+
+    @Test
+    void wrongPasswordIsRejected() {
+        assertThatThrownBy(() -> authService.login(login("wrong")))
+            .isInstanceOf(AuthException.class)
+            .hasMessage("Credenciales inválidas");
+    }
+
+    @Test
+    void unknownEmailIsRejectedLikeAWrongPassword() {
+        assertThatThrownBy(() -> authService.login(LoginRequest.builder().email("nobody@example.com").password(PASSWORD).build()))
+            .isInstanceOf(AuthException.class)
+            .hasMessage("Credenciales inválidas");
+    }
+
+    private static LoginRequest login(String password) {
+        return LoginRequest.builder().email(EMAIL).password(password).build();
+    }
+
+    public static class SqlRecorder implements StatementInspector {
+
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql.toLowerCase(Locale.ROOT));
+            return sql;
+        }
+
+        static List<String> selectsFrom(String table) {
+            return STATEMENTS.stream()
+                .filter(sql -> sql.startsWith("select") && sql.matches("(?s).*\\bfrom " + table + "\\b.*"))
+                .toList();
+        }
+    }
+
+    @TestConfiguration
+    static class PasswordEncoderConfig {
+
+        @Bean
+        PasswordEncoder passwordEncoder() {
+            return new BCryptPasswordEncoder(4);
+        }
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.hecttoy.authserver.config;
+
+import com.hecttoy.authserver.AuthServerApplication;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(classes = AuthServerApplication.class, properties = {"app.passwordHashStrength=4",
+    "spring.datasource.url=jdbc:h2:mem:security-config-test"})
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+class SecurityConfigTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void anonymousIntrospectionIsUnauthorized() throws Exception {
+        mockMvc.perform(introspect()).andExpect(status().isUnauthorized());
+        mockMvc.perform(introspectBatch()).andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    @WithMockUser(roles = "USER")
+    void introspectionNeedsTheIntrospectRole() throws Exception {
+        mockMvc.perform(introspect()).andExpect(status().isForbidden());
+        mockMvc.perform(introspectBatch()).andExpect(status().isForbidden());
+    }
+
+    @Test
+    @WithMockUser(roles = SecurityConfig.INTROSPECT_ROLE)
+    void introspectionIsAllowedForGatewayClients() throws Exception {
+        mockMvc.perform(introspect())
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.active").value(false));
+    }
+
+    @Test
+    void healthIsPublicButMetricsAreNot() throws Exception {
+        mockMvc.perform(get("/actuator/health")).andExpect(status().isOk());
+        mockMvc.perform(get("/actuator/metrics")).andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/actuator/metrics/auth.introspect.tokens")).andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    @WithMockUser(roles = "USER")
+    void metricsNeedTheAdminRole() throws Exception {
+        mockMvc.perform(get("/actuator/metrics")).andExpect(status().isForbidden());
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void metricsAreAvailableToAdmins() throws Exception {
+        mockMvc.perform(get("/actuator/metrics/auth.introspect.tokens")).andExpect(status().isOk());
+    }
+
+    private static RequestBuilder introspect() {
+        return post("/auth/introspect")
+            .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+            .param("token", "not-a-token");
+    }
+
+    private static RequestBuilder introspectBatch() {
+        return post("/auth/introspect/batch")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"tokens\":[\"not-a-token\"]}");
+    }
+}
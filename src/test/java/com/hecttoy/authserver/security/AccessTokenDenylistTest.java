@@ -0,0 +1,76 @@
+package com.hecttoy.authserver.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AccessTokenDenylistTest {
+
+    private AccessTokenDenylist denylist;
+
+    @BeforeEach
+    void setUp() {
+        denylist = new AccessTokenDenylist();
+    }
+
+    @Test
+    void containsOnlyAddedIds() {
+        String revoked = UUID.randomUUID().toString();
+
+        denylist.add(revoked, Instant.now().plusSeconds(60));
+
+        assertThat(denylist.contains(revoked)).isTrue();
+        assertThat(denylist.contains(revoked.toUpperCase())).isTrue();
+        assertThat(denylist.contains(UUID.randomUUID().toString())).isFalse();
+        assertThat(denylist.contains("not-a-uuid")).isFalse();
+        assertThat(denylist.contains(null)).isFalse();
+    }
+
+    @Test
+    void growsPastTheInitialCapacity() {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            String id = UUID.randomUUID().toString();
+            ids.add(id);
+            denylist.add(id, Instant.now().plusSeconds(60));
+        }
+
+        assertThat(denylist.size()).isEqualTo(10_000);
+        assertThat(ids).allMatch(denylist::contains);
+    }
+
+    @Test
+    void addingTwiceKeepsOneEntry() {
+        String id = UUID.randomUUID().toString();
+
+        denylist.add(id, Instant.now().plusSeconds(60));
+        denylist.add(id, Instant.now().plusSeconds(120));
+
+        assertThat(denylist.size()).isEqualTo(1);
+    }
+
+    @Test
+    void evictsExpiredIds() {
+        String expired = UUID.randomUUID().toString();
+        String live = UUID.randomUUID().toString();
+        denylist.add(expired, Instant.now().minusSeconds(1));
+        denylist.add(live, Instant.now().plusSeconds(60));
+
+        assertThat(denylist.evictExpired()).isEqualTo(1);
+        assertThat(denylist.contains(expired)).isFalse();
+        assertThat(denylist.contains(live)).isTrue();
+    }
+
+    @Test
+    void rejectsIdsThatAreNotUuids() {
+        assertThatThrownBy(() -> denylist.add("jti", Instant.now().plusSeconds(60)))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,32 @@
+package com.hecttoy.authserver.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JwtKeyRingTest {
+
+    @Test
+    void refusesToStartWithoutAKeyStoreUnlessEphemeralKeysAreEnabled() {
+        JwtKeyRing keyRing = new JwtKeyRing();
+        ReflectionTestUtils.setField(keyRing, "keyStoreLocation", "");
+
+        assertThatThrownBy(keyRing::init)
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("app.jwtEphemeralKey");
+    }
+
+    @Test
+    void generatesAnEphemeralKeyWhenEnabled() throws Exception {
+        JwtKeyRing keyRing = new JwtKeyRing();
+        ReflectionTestUtils.setField(keyRing, "keyStoreLocation", "");
+        ReflectionTestUtils.setField(keyRing, "ephemeralKey", true);
+
+        keyRing.init();
+
+        assertThat(keyRing.getSigningKey()).isNotNull();
+        assertThat(keyRing.getVerificationKey(keyRing.getSigningKeyId())).isNotNull();
+    }
+}
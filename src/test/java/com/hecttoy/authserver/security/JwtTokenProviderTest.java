@@ -0,0 +1,75 @@
+package com.hecttoy.authserver.security;
+
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtTokenProviderTest {
+
+    private JwtKeyRing jwtKeyRing;
+    private JwtTokenProvider jwtTokenProvider;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        jwtKeyRing = new JwtKeyRing();
+        ReflectionTestUtils.setField(jwtKeyRing, "keyStoreLocation", "");
+        ReflectionTestUtils.setField(jwtKeyRing, "ephemeralKey", true);
+        jwtKeyRing.init();
+
+        VerifiedTokenCache cache = new VerifiedTokenCache();
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxSize", 100);
+
+        jwtTokenProvider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(jwtTokenProvider, "jwtAccessTokenExpiration", 900000L);
+        ReflectionTestUtils.setField(jwtTokenProvider, "jwtRefreshTokenExpiration", 604800000L);
+        ReflectionTestUtils.setField(jwtTokenProvider, "verifiedTokenCache", cache);
+        ReflectionTestUtils.setField(jwtTokenProvider, "jwtKeyRing", jwtKeyRing);
+        jwtTokenProvider.init();
+    }
+
+    @Test
+    void accessTokenRoundTrip() {
+        String token = jwtTokenProvider.generateAccessToken("alice", Map.of("id", 7L, "roles", List.of("USER")));
+
+        VerifiedToken verified = jwtTokenProvider.verifyToken(token);
+
+        assertThat(verified).isNotNull();
+        assertThat(verified.subject()).isEqualTo("alice");
+        assertThat(verified.userId()).isEqualTo(7L);
+        assertThat(verified.roles()).containsExactly("USER");
+        assertThat(verified.authorities()).extracting("authority").containsExactly("ROLE_USER");
+        assertThat(verified.jti()).isNotBlank();
+    }
+
+    @Test
+    void tokenCarriesKeyIdPublishedInJwks() {
+        String token = jwtTokenProvider.generateAccessToken("alice", Map.of());
+        String keyId = Jwts.parser()
+            .verifyWith(jwtKeyRing.getVerificationKey(jwtKeyRing.getSigningKeyId()))
+            .build()
+            .parseSignedClaims(token)
+            .getHeader()
+            .getKeyId();
+
+        assertThat(keyId).isEqualTo(jwtKeyRing.getSigningKeyId());
+        assertThat(jwtKeyRing.getJwksJson())
+            .contains("\"kid\":\"" + keyId + "\"")
+            .contains("\"crv\":\"P-256\"")
+            .doesNotContain("\"d\"");
+    }
+
+    @Test
+    void tamperedTokenIsRejected() {
+        String token = jwtTokenProvider.generateAccessToken("alice", Map.of());
+        String tampered = token.substring(0, token.length() - 4) + "AAAA";
+
+        assertThat(jwtTokenProvider.verifyToken(tampered)).isNull();
+    }
+}
@@ -0,0 +1,254 @@
+package com.hecttoy.authserver.security;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LoginRateLimitFilterTest {
+
+    private MeterRegistry meterRegistry;
+    private LoginRateLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        LoginRateLimiter limiter = new LoginRateLimiter();
+        ReflectionTestUtils.setField(limiter, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(limiter, "enabled", true);
+        ReflectionTestUtils.setField(limiter, "ipBurst", 3);
+        ReflectionTestUtils.setField(limiter, "ipPerMinute", 3.0);
+        ReflectionTestUtils.setField(limiter, "emailBurst", 1);
+        ReflectionTestUtils.setField(limiter, "emailPerMinute", 2.0);
+        ReflectionTestUtils.setField(limiter, "tableSize", 1024);
+        limiter.init();
+        filter = new LoginRateLimitFilter(limiter, new ObjectMapper());
+    }
+
+    @Test
+    void passesTheBodyThroughUntouched() throws Exception {
+        String body = "{\"password\":\"Password123!\",\"email\":\"alice@example.com\"}";
+        MockFilterChain chain = new MockFilterChain();
+
+        MockHttpServletResponse response = login("10.0.0.1", body, chain);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(chain.getRequest().getInputStream().readAllBytes())
+            .asString(StandardCharsets.UTF_8).isEqualTo(body);
+    }
+
+    @Test
+    void replaysTheBodyToNonBlockingReaders() throws Exception {
+        String small = email("alice@example.com");
+        String large = email("bob@example.com") + " ".repeat(20_000);
+
+        assertThat(readAsync("10.0.0.1", small)).isEqualTo(small);
+        assertThat(readAsync("10.0.0.2", large)).isEqualTo(large);
+    }
+
+    @Test
+    void limitsEachEmailAcrossIps() throws Exception {
+        assertThat(login("10.0.0.1", email("alice@example.com")).getStatus()).isEqualTo(200);
+
+        MockHttpServletResponse rejected = login("10.0.0.2", email("ALICE@example.com"));
+
+        assertThat(rejected.getStatus()).isEqualTo(429);
+        assertThat(rejected.getHeader("Retry-After")).isEqualTo("30");
+        assertThat(rejected.getContentAsString()).contains("\"code\":429");
+        assertThat(login("10.0.0.2", email("bob@example.com")).getStatus()).isEqualTo(200);
+        assertThat(meterRegistry.get("auth.ratelimit.rejected").tag("limit", "email").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void rejectsADuplicatedEmailInsteadOfChargingTheFirstOne() throws Exception {
+        assertThat(login("10.0.0.1", email("victim@example.com")).getStatus()).isEqualTo(200);
+        MockFilterChain chain = new MockFilterChain();
+
+        MockHttpServletResponse response = login("10.0.0.2",
+            "{\"email\":\"random@example.com\",\"email\":\"victim@example.com\",\"password\":\"x\"}", chain);
+
+        assertThat(response.getStatus()).isEqualTo(400);
+        assertThat(response.getContentAsString()).contains("\"code\":400");
+        assertThat(chain.getRequest()).isNull();
+    }
+
+    @Test
+    void rejectsABodyWhoseEmailIsPastTheInspectedBytes() throws Exception {
+        String padded = "{\"padding\":\"" + "x".repeat(LoginRateLimitFilter.MAX_INSPECTED_BODY)
+            + "\",\"email\":\"victim@example.com\",\"password\":\"x\"}";
+        MockFilterChain chain = new MockFilterChain();
+
+        MockHttpServletResponse response = login("10.0.0.1", padded, chain);
+
+        assertThat(response.getStatus()).isEqualTo(400);
+        assertThat(chain.getRequest()).isNull();
+    }
+
+    @Test
+    void limitsEachIpAcrossEmails() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            assertThat(login("10.0.0.1", email("user" + i + "@example.com")).getStatus()).isEqualTo(200);
+        }
+
+        MockHttpServletResponse rejected = login("10.0.0.1", email("other@example.com"));
+
+        assertThat(rejected.getStatus()).isEqualTo(429);
+        assertThat(rejected.getHeader("Retry-After")).isEqualTo("20");
+        assertThat(meterRegistry.get("auth.ratelimit.rejected").tag("limit", "ip").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void otherRoutesAreNotLimited() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            MockHttpServletRequest request = new MockHttpServletRequest("POST", "/auth/refresh");
+            request.setServletPath("/auth/refresh");
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            filter.doFilter(request, response, new MockFilterChain());
+            assertThat(response.getStatus()).isEqualTo(200);
+        }
+    }
+
+    @Test
+    void extractsOnlyTheTopLevelEmail() throws Exception {
+        assertThat(LoginRateLimitFilter.extractEmail(bytes("{\"user\":{\"email\":\"x@y.z\"},\"email\":\"a@b.c\"}")))
+            .isEqualTo("a@b.c");
+        assertThat(LoginRateLimitFilter.extractEmail(bytes("{\"username\":\"alice\"}"))).isNull();
+        assertThatThrownBy(() -> LoginRateLimitFilter.extractEmail(bytes("{\"email\":")))
+            .isInstanceOf(JsonProcessingException.class);
+        assertThatThrownBy(() -> LoginRateLimitFilter.extractEmail(bytes("{\"email\":\"a@b.c\",\"password\":\"x\"")))
+            .isInstanceOf(JsonProcessingException.class);
+        assertThatThrownBy(() -> LoginRateLimitFilter.extractEmail(bytes("{\"email\":[\"a@b.c\"]}")))
+            .isInstanceOf(JsonProcessingException.class);
+        assertThatThrownBy(() -> LoginRateLimitFilter.extractEmail(bytes("not json")))
+            .isInstanceOf(JsonProcessingException.class);
+    }
+
+    private MockHttpServletResponse login(String ip, String body) throws Exception {
+        return login(ip, body, new MockFilterChain());
+    }
+
+    private MockHttpServletResponse login(String ip, String body, MockFilterChain chain) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/auth/login");
+        request.setServletPath("/auth/login");
+        request.setRemoteAddr(ip);
+        request.setContentType("application/json");
+        request.setContent(bytes(body));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+
+    /**
+     * Runs the body through the filter over a stream that, like the container, calls back
+     * {@code onDataAvailable} while there is data left and {@code onAllDataRead} at the end.
+     */
+    private String readAsync(String ip, String body) throws Exception {
+        AsyncInputStream original = new AsyncInputStream(bytes(body));
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/auth/login") {
+            @Override
+            public ServletInputStream getInputStream() {
+                return original;
+            }
+        };
+        request.setServletPath("/auth/login");
+        request.setRemoteAddr(ip);
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        ServletInputStream replayed = chain.getRequest().getInputStream();
+        ByteArrayOutputStream received = new ByteArrayOutputStream();
+        boolean[] allRead = new boolean[1];
+        replayed.setReadListener(new ReadListener() {
+
+            @Override
+            public void onDataAvailable() throws IOException {
+                byte[] buffer = new byte[1024];
+                while (replayed.isReady() && !replayed.isFinished()) {
+                    int n = replayed.read(buffer);
+                    if (n > 0) {
+                        received.write(buffer, 0, n);
+                    }
+                }
+            }
+
+            @Override
+            public void onAllDataRead() {
+                allRead[0] = true;
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                throw new AssertionError(t);
+            }
+        });
+
+        assertThat(allRead[0]).isTrue();
+        assertThat(replayed.isFinished()).isTrue();
+        return received.toString(StandardCharsets.UTF_8);
+    }
+
+    private static final class AsyncInputStream extends ServletInputStream {
+
+        private final ByteArrayInputStream content;
+
+        AsyncInputStream(byte[] content) {
+            this.content = new ByteArrayInputStream(content);
+        }
+
+        @Override
+        public int read() {
+            return content.read();
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            return content.read(buffer, offset, length);
+        }
+
+        @Override
+        public boolean isFinished() {
+            return content.available() == 0;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            try {
+                if (!isFinished()) {
+                    readListener.onDataAvailable();
+                }
+                readListener.onAllDataRead();
+            } catch (IOException e) {
+                readListener.onError(e);
+            }
+        }
+    }
+
+    private static String email(String email) {
+        return "{\"email\":\"" + email + "\",\"password\":\"Password123!\"}";
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,24 @@
+package com.hecttoy.authserver.security;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OpaqueTokenTest {
+
+    @Test
+    void generatesUrlSafe256BitTokens() {
+        String token = OpaqueToken.generate();
+
+        assertThat(token).hasSize(43).matches("[A-Za-z0-9_-]+");
+        assertThat(OpaqueToken.generate()).isNotEqualTo(token);
+    }
+
+    @Test
+    void digestIsFixedLengthAndStable() {
+        String token = OpaqueToken.generate();
+
+        assertThat(OpaqueToken.digest(token)).hasSize(OpaqueToken.DIGEST_LENGTH).isEqualTo(OpaqueToken.digest(token));
+        assertThat(OpaqueToken.digest(token)).isNotEqualTo(OpaqueToken.digest(OpaqueToken.generate()));
+    }
+}
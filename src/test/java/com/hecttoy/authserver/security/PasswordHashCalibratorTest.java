@@ -0,0 +1,41 @@
+package com.hecttoy.authserver.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PasswordHashCalibratorTest {
+
+    @Test
+    void neverGoesBelowTheMinimum() {
+        assertThat(PasswordHashCalibrator.calibrateBCrypt(0, 5, 8)).isEqualTo(5);
+    }
+
+    @Test
+    void neverGoesAboveTheMaximum() {
+        assertThat(PasswordHashCalibrator.calibrateBCrypt(60_000, 4, 6)).isEqualTo(6);
+    }
+
+    @Test
+    void minimumEqualToMaximumFixesTheCost() {
+        assertThat(PasswordHashCalibrator.calibrateBCrypt(60_000, 4, 4)).isEqualTo(4);
+    }
+
+    @Test
+    void prefixesNewHashesAndUpgradesEverythingElse() {
+        PasswordEncoder encoder = PasswordHashCalibrator.bcrypt(5);
+        String current = encoder.encode("secret");
+        String legacy = new BCryptPasswordEncoder(5).encode("secret");
+        String weaker = "{bcrypt}" + new BCryptPasswordEncoder(4).encode("secret");
+
+        assertThat(current).startsWith("{bcrypt}$2a$05$");
+        assertThat(encoder.matches("secret", current)).isTrue();
+        assertThat(encoder.matches("secret", legacy)).isTrue();
+        assertThat(encoder.matches("secret", weaker)).isTrue();
+        assertThat(encoder.upgradeEncoding(current)).isFalse();
+        assertThat(encoder.upgradeEncoding(legacy)).isTrue();
+        assertThat(encoder.upgradeEncoding(weaker)).isTrue();
+    }
+}
@@ -0,0 +1,140 @@
+package com.hecttoy.authserver.security;
+
+import com.hecttoy.authserver.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PasswordHashingExecutorTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private MeterRegistry meterRegistry;
+    private PasswordHashingExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        executor = new PasswordHashingExecutor();
+        ReflectionTestUtils.setField(executor, "passwordEncoder", new BlockingEncoder());
+        ReflectionTestUtils.setField(executor, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(executor, "enabled", true);
+        ReflectionTestUtils.setField(executor, "coreShare", 0.0);
+        ReflectionTestUtils.setField(executor, "queueCapacity", 1);
+        ReflectionTestUtils.setField(executor, "retryAfterSeconds", 2L);
+        ReflectionTestUtils.setField(executor, "upgradeQueueCapacity", 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executor.shutdown();
+    }
+
+    @Test
+    void hashesOnTheDedicatedPool() {
+        executor.init();
+        release.countDown();
+
+        assertThat(executor.encode("secret")).startsWith("password-hashing-");
+        assertThat(executor.matches("secret", "hash")).isTrue();
+        assertThat(meterRegistry.get("auth.hashing.wait").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    void rejectsOnceTheQueueIsFull() {
+        executor.init();
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> executor.encode("a"));
+        waitUntil(() -> meterRegistry.get("auth.hashing.active").gauge().value() == 1);
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> executor.encode("b"));
+        waitUntil(() -> meterRegistry.get("auth.hashing.queue.depth").gauge().value() == 1);
+
+        assertThatThrownBy(() -> executor.encode("c"))
+            .isInstanceOf(ServiceUnavailableException.class)
+            .extracting("retryAfterSeconds").isEqualTo(2L);
+        assertThat(meterRegistry.get("auth.hashing.rejected").counter().count()).isEqualTo(1);
+
+        release.countDown();
+        assertThat(running.join()).isNotNull();
+        assertThat(queued.join()).isNotNull();
+    }
+
+    @Test
+    void upgradesRunOnTheirOwnThreadAndNeverTakeALoginSlot() {
+        executor.init();
+        List<String> stored = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            executor.upgradeLater("secret", "old-hash", stored::add);
+        }
+        assertThat(meterRegistry.get("auth.hashing.upgrades").tag("result", "dropped").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("auth.hashing.queue.depth").gauge().value()).isZero();
+
+        CompletableFuture<String> login = CompletableFuture.supplyAsync(() -> executor.encode("a"));
+        waitUntil(() -> meterRegistry.get("auth.hashing.active").gauge().value() == 1);
+        release.countDown();
+
+        assertThat(login.join()).startsWith("password-hashing-");
+        waitUntil(() -> stored.size() == 2);
+        assertThat(stored).allSatisfy(hash -> assertThat(hash).startsWith("password-upgrade-"));
+        assertThat(meterRegistry.get("auth.hashing.upgrades").tag("result", "upgraded").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void disabledHashesOnTheCallerThread() {
+        ReflectionTestUtils.setField(executor, "enabled", false);
+        executor.init();
+        release.countDown();
+
+        assertThat(executor.encode("secret")).isEqualTo(Thread.currentThread().getName());
+    }
+
+    private static void waitUntil(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met in time").isLessThan(deadline);
+            Thread.onSpinWait();
+        }
+    }
+
+    /** Returns the name of the thread that hashed, once the test releases it. */
+    private class BlockingEncoder implements PasswordEncoder {
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            awaitRelease();
+            return Thread.currentThread().getName();
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            awaitRelease();
+            return true;
+        }
+
+        @Override
+        public boolean upgradeEncoding(String encodedPassword) {
+            return true;
+        }
+
+        private void awaitRelease() {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
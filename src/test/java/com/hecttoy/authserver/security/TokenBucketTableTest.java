@@ -0,0 +1,82 @@
+package com.hecttoy.authserver.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketTableTest {
+
+    @Test
+    void allowsTheBurstThenRefillsOverTime() {
+        TokenBucketTable table = new TokenBucketTable(1024, 3, 1.0);
+        long key = TokenBucketTable.hash("10.0.0.1", false);
+
+        assertThat(IntStream.range(0, 4).mapToObj(i -> table.tryAcquire(key, 0)))
+            .containsExactly(true, true, true, false);
+        assertThat(table.tryAcquire(key, 999)).isFalse();
+        assertThat(table.tryAcquire(key, 1000)).isTrue();
+        assertThat(table.tryAcquire(key, 1000)).isFalse();
+    }
+
+    @Test
+    void keysHaveIndependentBuckets() {
+        TokenBucketTable table = new TokenBucketTable(1024, 1, 1.0);
+
+        assertThat(table.tryAcquire(TokenBucketTable.hash("alice@example.com", true), 0)).isTrue();
+        assertThat(table.tryAcquire(TokenBucketTable.hash("bob@example.com", true), 0)).isTrue();
+        assertThat(table.tryAcquire(TokenBucketTable.hash("ALICE@example.com", true), 0)).isFalse();
+    }
+
+    @Test
+    void fullTableReplacesTheLongestIdleBucket() {
+        TokenBucketTable table = new TokenBucketTable(TokenBucketTable.PROBES, 1, 0.001);
+        // Every key below lands in the same probe window, one per slot
+        for (int i = 0; i < TokenBucketTable.PROBES; i++) {
+            assertThat(table.tryAcquire(key(i), i)).isTrue();
+        }
+
+        assertThat(table.tryAcquire(key(TokenBucketTable.PROBES), 100)).isTrue();
+        assertThat(table.evictions()).isEqualTo(1);
+
+        assertThat(table.tryAcquire(key(0), 100)).as("key 0 was forgotten").isTrue();
+        assertThat(table.tryAcquire(key(TokenBucketTable.PROBES - 1), 100)).isFalse();
+    }
+
+    @Test
+    void idleSweepFreesOnlyRefilledBuckets() {
+        TokenBucketTable table = new TokenBucketTable(1024, 2, 1.0);
+        table.tryAcquire(TokenBucketTable.hash("old", false), 0);
+        table.tryAcquire(TokenBucketTable.hash("recent", false), 1500);
+
+        assertThat(table.evictIdle(2000)).isEqualTo(1);
+        assertThat(table.evictIdle(3500)).isZero();
+    }
+
+    @Test
+    void concurrentCallersNeverExceedTheBurst() {
+        TokenBucketTable table = new TokenBucketTable(1024, 100, 0.001);
+        long key = TokenBucketTable.hash("10.0.0.1", false);
+        AtomicInteger allowed = new AtomicInteger();
+
+        CompletableFuture.allOf(IntStream.range(0, 8)
+            .mapToObj(t -> CompletableFuture.runAsync(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    if (table.tryAcquire(key, 0)) {
+                        allowed.incrementAndGet();
+                    }
+                }
+            }))
+            .toArray(CompletableFuture[]::new)).join();
+
+        assertThat(allowed).hasValue(100);
+    }
+
+    /** Hashes with the same home slot (0) and distinct fingerprints. */
+    private static long key(int i) {
+        return (long) (i + 1) << 48;
+    }
+}
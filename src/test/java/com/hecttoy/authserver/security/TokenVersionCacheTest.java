@@ -0,0 +1,76 @@
+package com.hecttoy.authserver.security;
+
+import com.hecttoy.authserver.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TokenVersionCacheTest {
+
+    private UserRepository userRepository;
+    private TokenVersionCache cache;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        cache = new TokenVersionCache();
+        ReflectionTestUtils.setField(cache, "userRepository", userRepository);
+        ReflectionTestUtils.setField(cache, "ttlMillis", 60_000L);
+        ReflectionTestUtils.setField(cache, "maxSize", 100);
+    }
+
+    @Test
+    void readsEachUsersVersionOncePerTtl() {
+        when(userRepository.findTokenVersionById(1L)).thenReturn(Optional.of(0L));
+
+        assertThat(cache.isCurrent(token(1L, 0L))).isTrue();
+        assertThat(cache.isCurrent(token(1L, 0L))).isTrue();
+        assertThat(cache.isCurrent(token(1L, null))).isTrue();
+
+        verify(userRepository, times(1)).findTokenVersionById(1L);
+    }
+
+    @Test
+    void changeEventRejectsOlderTokensAtOnce() {
+        when(userRepository.findTokenVersionById(1L)).thenReturn(Optional.of(0L));
+        assertThat(cache.isCurrent(token(1L, 0L))).isTrue();
+
+        cache.onTokenVersionChanged(new TokenVersionChangedEvent(1L, 1L));
+
+        assertThat(cache.isCurrent(token(1L, 0L))).isFalse();
+        assertThat(cache.isCurrent(token(1L, 1L))).isTrue();
+        verify(userRepository, times(1)).findTokenVersionById(1L);
+    }
+
+    @Test
+    void newerTokenThanTheCachedVersionReloads() {
+        when(userRepository.findTokenVersionById(1L)).thenReturn(Optional.of(0L)).thenReturn(Optional.of(2L));
+        assertThat(cache.isCurrent(token(1L, 0L))).isTrue();
+
+        assertThat(cache.isCurrent(token(1L, 2L))).isTrue();
+        assertThat(cache.isCurrent(token(1L, 0L))).isFalse();
+    }
+
+    @Test
+    void tokensOfDeletedUsersAreRejected() {
+        when(userRepository.findTokenVersionById(1L)).thenReturn(Optional.empty());
+
+        assertThat(cache.isCurrent(token(1L, 0L))).isFalse();
+        assertThat(cache.isCurrent(token(null, 0L))).isFalse();
+    }
+
+    private static VerifiedToken token(Long userId, Long tokenVersion) {
+        return new VerifiedToken("alice", userId, List.of("USER"), List.of(), Instant.now().plusSeconds(60), "jti",
+            "alice@example.com", "Alice", "Example", 0L, "device", tokenVersion);
+    }
+}
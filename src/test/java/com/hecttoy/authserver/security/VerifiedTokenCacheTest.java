@@ -0,0 +1,89 @@
+package com.hecttoy.authserver.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VerifiedTokenCacheTest {
+
+    private VerifiedTokenCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new VerifiedTokenCache();
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxSize", 100);
+    }
+
+    @Test
+    void repeatedTokenIsVerifiedOnce() {
+        AtomicInteger verifications = new AtomicInteger();
+        VerifiedToken token = token(Instant.now().plusSeconds(60));
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(cache.getOrVerify("a.b.c", t -> {
+                verifications.incrementAndGet();
+                return token;
+            })).isSameAs(token);
+        }
+
+        assertThat(verifications).hasValue(1);
+        assertThat(cache.getHitCount()).isEqualTo(4);
+        assertThat(cache.getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    void expiredEntryIsVerifiedAgain() {
+        AtomicInteger verifications = new AtomicInteger();
+        VerifiedToken expired = token(Instant.now().minusSeconds(1));
+
+        cache.getOrVerify("a.b.c", t -> {
+            verifications.incrementAndGet();
+            return expired;
+        });
+        cache.getOrVerify("a.b.c", t -> {
+            verifications.incrementAndGet();
+            return null;
+        });
+
+        assertThat(verifications).hasValue(2);
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void sizeStaysBounded() {
+        for (int i = 0; i < 1_000; i++) {
+            VerifiedToken token = token(Instant.now().plusSeconds(60));
+            cache.getOrVerify("token-" + i, t -> token);
+        }
+
+        assertThat(cache.size()).isLessThanOrEqualTo(100);
+    }
+
+    @Test
+    void fullCacheSkipsCachingWhileAnotherThreadEvicts() {
+        for (int i = 0; i < 100; i++) {
+            VerifiedToken token = token(Instant.now().plusSeconds(60));
+            cache.getOrVerify("token-" + i, t -> token);
+        }
+        AtomicBoolean evicting = (AtomicBoolean) ReflectionTestUtils.getField(cache, "evicting");
+        evicting.set(true);
+
+        VerifiedToken token = token(Instant.now().plusSeconds(60));
+        assertThat(cache.getOrVerify("one-more", t -> token)).isSameAs(token);
+
+        assertThat(cache.size()).isEqualTo(100);
+    }
+
+    private static VerifiedToken token(Instant expiresAt) {
+        return new VerifiedToken("alice", 1L, List.of("USER"), List.of(), expiresAt, "jti",
+            "alice@example.com", "Alice", "Example", 0L, "device", 0L);
+    }
+}
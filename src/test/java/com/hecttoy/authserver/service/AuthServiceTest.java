@@ -0,0 +1,396 @@
+package com.hecttoy.authserver.service;
+
+import com.hecttoy.authserver.dto.LoginRequest;
+import com.hecttoy.authserver.dto.LogoutRequest;
+import com.hecttoy.authserver.dto.RefreshTokenRequest;
+import com.hecttoy.authserver.dto.RegisterRequest;
+import com.hecttoy.authserver.dto.SessionResponse;
+import com.hecttoy.authserver.dto.TokenResponse;
+import com.hecttoy.authserver.dto.UserInfoResponse;
+import com.hecttoy.authserver.exception.AuthException;
+import com.hecttoy.authserver.exception.TokenException;
+import com.hecttoy.authserver.model.Role;
+import com.hecttoy.authserver.model.User;
+import com.hecttoy.authserver.repository.UserRepository;
+import com.hecttoy.authserver.security.AccessTokenDenylist;
+import com.hecttoy.authserver.security.JwtKeyRing;
+import com.hecttoy.authserver.security.JwtTokenProvider;
+import com.hecttoy.authserver.security.PasswordHashCalibrator;
+import com.hecttoy.authserver.security.PasswordHashingExecutor;
+import com.hecttoy.authserver.security.VerifiedToken;
+import com.hecttoy.authserver.security.VerifiedTokenCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest(properties = {"app.maxSessionsPerUser=2", "app.hashingEnabled=false", "app.userFilterCatchUpInterval=0",
+    "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.hecttoy.authserver.service.AuthServiceTest$SqlRecorder"})
+@ActiveProfiles("h2")
+@Import({AuthService.class, JwtTokenProvider.class, JwtKeyRing.class, VerifiedTokenCache.class,
+    AccessTokenRevocationService.class, AccessTokenDenylist.class, DefaultRole.class,
+    UserExistenceFilter.class, PasswordHashingExecutor.class, AuthServiceTest.PasswordEncoderConfig.class})
+class AuthServiceTest {
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private JwtTokenProvider jwtTokenProvider;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private UserExistenceFilter userExistenceFilter;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @BeforeEach
+    void setUp() {
+        authService.register(RegisterRequest.builder()
+            .username("alice")
+            .email("alice@example.com")
+            .password("Password123!")
+            .firstName("Alice")
+            .lastName("Example")
+            .build());
+        userRepository.flush();
+        entityManager.clear();
+        SqlRecorder.STATEMENTS.clear();
+    }
+
+    @Test
+    void loginLoadsTheUserAndItsRolesInOneSelect() {
+        login();
+
+        assertThat(SqlRecorder.selectsFrom("users")).singleElement()
+            .satisfies(sql -> assertThat(sql).contains("user_roles"));
+    }
+
+    @Test
+    void loginFindsAUserRegisteredOnAnotherInstanceBeforeTheNextSync() {
+        // Saved directly, as another instance would, so this instance's filter never saw it
+        double recent = emailLookups("recent");
+        userRepository.saveAndFlush(User.builder()
+            .username("carol")
+            .email("carol@elsewhere.example.com")
+            .password(PasswordHashCalibrator.bcrypt(4).encode("Password123!"))
+            .firstName("Carol")
+            .lastName("Example")
+            .build());
+
+        TokenResponse tokens = authService.login(LoginRequest.builder()
+            .email("carol@elsewhere.example.com")
+            .password("Password123!")
+            .build());
+
+        assertThat(tokens.getAccessToken()).isNotBlank();
+        assertThat(emailLookups("recent")).isEqualTo(recent + 1);
+        assertThatThrownBy(() -> authService.login(LoginRequest.builder()
+            .email("nobody@example.com")
+            .password("Password123!")
+            .build()))
+            .isInstanceOf(AuthException.class);
+    }
+
+    @Test
+    void unknownEmailsCatchUpWithOtherInstancesAtMostOncePerInterval() {
+        ReflectionTestUtils.setField(userExistenceFilter, "catchUpIntervalMillis", 60_000L);
+        ReflectionTestUtils.setField(userExistenceFilter, "lastCatchUp", 0L);
+        try {
+            for (int i = 0; i < 3; i++) {
+                String email = "nobody" + i + "@example.com";
+                assertThatThrownBy(() -> authService.login(LoginRequest.builder()
+                        .email(email)
+                        .password("Password123!")
+                        .build()))
+                    .isInstanceOf(AuthException.class);
+            }
+
+            assertThat(SqlRecorder.selectsFrom("users")).hasSize(1);
+        } finally {
+            ReflectionTestUtils.setField(userExistenceFilter, "catchUpIntervalMillis", 0L);
+        }
+    }
+
+    @Test
+    void loginRehashesAPasswordStoredInTheOldFormat() {
+        User alice = userRepository.findByEmail("alice@example.com").orElseThrow();
+        String legacy = new BCryptPasswordEncoder(4).encode("Password123!");
+        userRepository.updatePasswordHash(alice.getId(), alice.getPassword(), legacy);
+
+        login();
+
+        String upgraded = userRepository.findByEmail("alice@example.com").orElseThrow().getPassword();
+        assertThat(upgraded).startsWith("{bcrypt}$2a$04$");
+        assertThat(login().getAccessToken()).isNotBlank();
+        assertThat(meterRegistry.get("auth.hashing.upgrades").tag("result", "upgraded").counter().count())
+            .isEqualTo(1);
+    }
+
+    @Test
+    void userInfoLoadsTheUserAndItsRolesInOneSelect() {
+        assertThat(authService.getUserInfo("alice").getRoles()).containsExactly(DefaultRole.NAME);
+
+        assertThat(SqlRecorder.selectsFrom("users")).singleElement()
+            .satisfies(sql -> assertThat(sql).contains("user_roles"));
+        assertThat(SqlRecorder.selectsFrom("user_roles")).isEmpty();
+    }
+
+    @Test
+    void registerGrantsTheDefaultRole() {
+        UserInfoResponse bob = register("bob", "bob@example.com");
+
+        assertThat(bob.getRoles()).containsExactly(DefaultRole.NAME);
+        assertThat(userRepository.findByUsername("bob").orElseThrow().getRoles())
+            .extracting(Role::getName)
+            .containsExactly(DefaultRole.NAME);
+    }
+
+    @Test
+    void registerRejectsADuplicateUsername() {
+        assertThatThrownBy(() -> register("alice", "other@example.com"))
+            .isInstanceOf(AuthException.class)
+            .hasMessage("Username already exists")
+            .extracting("code").isEqualTo(409);
+    }
+
+    @Test
+    void registerRejectsADuplicateEmail() {
+        assertThatThrownBy(() -> register("other", "alice@example.com"))
+            .isInstanceOf(AuthException.class)
+            .hasMessage("Email already exists")
+            .extracting("code").isEqualTo(409);
+    }
+
+    @Test
+    void loginWithAnUnknownEmailIsRejectedByTheUserFilter() {
+        double absentBefore = emailLookups("absent");
+        double presentBefore = emailLookups("present");
+
+        assertThatThrownBy(() -> authService.login(LoginRequest.builder()
+                .email("nobody@example.com")
+                .password("Password123!")
+                .build()))
+            .isInstanceOf(AuthException.class)
+            .hasMessage("Invalid email or password");
+        assertThat(login().getAccessToken()).isNotBlank();
+
+        assertThat(emailLookups("absent") - absentBefore).isEqualTo(1);
+        assertThat(emailLookups("present") - presentBefore).isEqualTo(1);
+    }
+
+    @Test
+    void refreshRotatesTheRefreshToken() {
+        String first = login().getRefreshToken();
+
+        String second = refresh(first).getRefreshToken();
+
+        assertThat(second).isNotEqualTo(first);
+        assertThat(refresh(second).getRefreshToken()).isNotEqualTo(second);
+    }
+
+    @Test
+    void reusingARotatedTokenRevokesTheWholeFamily() {
+        String first = login().getRefreshToken();
+        String second = refresh(first).getRefreshToken();
+
+        assertThatThrownBy(() -> refresh(first))
+            .isInstanceOf(TokenException.class)
+            .hasMessageContaining("reuse");
+        assertThatThrownBy(() -> refresh(second))
+            .isInstanceOf(TokenException.class);
+    }
+
+    @Test
+    void loggedOutTokenCannotBeRefreshed() {
+        String refreshToken = login().getRefreshToken();
+
+        authService.logout(LogoutRequest.builder().refreshToken(refreshToken).build(), null);
+
+        assertThatThrownBy(() -> refresh(refreshToken)).isInstanceOf(TokenException.class);
+    }
+
+    @Test
+    void devicesKeepIndependentSessions() {
+        String laptop = login("laptop").getRefreshToken();
+        String phone = login("phone").getRefreshToken();
+
+        assertThat(refresh(laptop).getDeviceId()).isEqualTo("laptop");
+        assertThat(refresh(phone).getDeviceId()).isEqualTo("phone");
+        assertThat(authService.getSessions("alice"))
+            .extracting(SessionResponse::getDeviceId)
+            .containsExactlyInAnyOrder("laptop", "phone");
+    }
+
+    @Test
+    void loginBeyondTheCapEvictsTheOldestSession() {
+        String laptop = login("laptop").getRefreshToken();
+        login("phone");
+        login("tablet");
+
+        assertThat(authService.getSessions("alice"))
+            .extracting(SessionResponse::getDeviceId)
+            .containsExactlyInAnyOrder("phone", "tablet");
+        assertThatThrownBy(() -> refresh(laptop)).isInstanceOf(TokenException.class);
+    }
+
+    @Test
+    void revokedSessionCannotBeRefreshed() {
+        String laptop = login("laptop").getRefreshToken();
+        String phone = login("phone").getRefreshToken();
+
+        authService.revokeSession("alice", "laptop");
+
+        assertThatThrownBy(() -> refresh(laptop)).isInstanceOf(TokenException.class);
+        assertThat(refresh(phone).getRefreshToken()).isNotBlank();
+
+        authService.revokeAllSessions("alice");
+
+        assertThat(authService.getSessions("alice")).isEmpty();
+    }
+
+    @Test
+    void claimsUserInfoMatchesTheDatabaseAndTracksTheProfileVersion() {
+        VerifiedToken token = jwtTokenProvider.verifyToken(login().getAccessToken());
+
+        UserInfoResponse fromClaims = authService.getUserInfo(token);
+        UserInfoResponse fromDatabase = authService.getUserInfo("alice");
+
+        assertThat(fromClaims)
+            .usingRecursiveComparison()
+            .ignoringFields("createdAt", "updatedAt")
+            .isEqualTo(fromDatabase);
+        assertThat(fromClaims.getProfileVersion()).isZero();
+
+        User user = userRepository.findByUsername("alice").orElseThrow();
+        user.setFirstName("Alicia");
+        userRepository.saveAndFlush(user);
+
+        assertThat(authService.getUserInfo("alice").getProfileVersion()).isEqualTo(1L);
+        assertThat(jwtTokenProvider.verifyToken(login().getAccessToken()).profileVersion()).isEqualTo(1L);
+    }
+
+    @Test
+    void signingOutEverywhereBumpsTheTokenVersion() {
+        VerifiedToken before = jwtTokenProvider.verifyToken(login().getAccessToken());
+
+        authService.revokeAllSessions("alice");
+
+        Long userId = userRepository.findByUsername("alice").orElseThrow().getId();
+        assertThat(before.tokenVersion()).isZero();
+        assertThat(userRepository.findTokenVersionById(userId)).contains(1L);
+        assertThat(jwtTokenProvider.verifyToken(login().getAccessToken()).tokenVersion()).isEqualTo(1L);
+    }
+
+    @Test
+    void deactivatingAUserBumpsTheTokenVersionAndBlocksLogin() {
+        Long userId = userRepository.findByUsername("alice").orElseThrow().getId();
+
+        UserInfoResponse userInfo = authService.deactivateUser(userId);
+
+        assertThat(userInfo.getActive()).isFalse();
+        assertThat(userRepository.findTokenVersionById(userId)).contains(1L);
+        assertThatThrownBy(this::login).isInstanceOf(AuthException.class);
+    }
+
+    @Test
+    void changingRolesBumpsTheTokenVersion() {
+        Long userId = userRepository.findByUsername("alice").orElseThrow().getId();
+        entityManager.persistAndFlush(Role.builder().name("ADMIN").description("Administrator").build());
+
+        UserInfoResponse userInfo = authService.updateRoles(userId, Set.of("USER", "ADMIN"));
+
+        assertThat(userInfo.getRoles()).containsExactlyInAnyOrder("USER", "ADMIN");
+        assertThat(userRepository.findTokenVersionById(userId)).contains(1L);
+        VerifiedToken token = jwtTokenProvider.verifyToken(login().getAccessToken());
+        assertThat(token.tokenVersion()).isEqualTo(1L);
+        assertThat(token.roles()).containsExactlyInAnyOrder("USER", "ADMIN");
+    }
+
+    private UserInfoResponse register(String username, String email) {
+        return authService.register(RegisterRequest.builder()
+            .username(username)
+            .email(email)
+            .password("Password123!")
+            .firstName("Test")
+            .lastName("Example")
+            .build());
+    }
+
+    private double emailLookups(String result) {
+        return meterRegistry.get("auth.userfilter.lookups").tags("filter", "email", "result", result).counter().count();
+    }
+
+    private TokenResponse login() {
+        return login(null);
+    }
+
+    private TokenResponse login(String deviceId) {
+        return authService.login(LoginRequest.builder()
+            .email("alice@example.com")
+            .password("Password123!")
+            .deviceId(deviceId)
+            .build());
+    }
+
+    private TokenResponse refresh(String refreshToken) {
+        return authService.refresh(RefreshTokenRequest.builder().refreshToken(refreshToken).build());
+    }
+
+    public static class SqlRecorder implements StatementInspector {
+
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql.toLowerCase(Locale.ROOT));
+            return sql;
+        }
+
+        static List<String> selectsFrom(String table) {
+            return STATEMENTS.stream()
+                .filter(sql -> sql.startsWith("select") && sql.matches("(?s).*\\bfrom " + table + "\\b.*"))
+                .toList();
+        }
+    }
+
+    @TestConfiguration
+    static class PasswordEncoderConfig {
+
+        @Bean
+        PasswordEncoder passwordEncoder() {
+            return PasswordHashCalibrator.bcrypt(4);
+        }
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.hecttoy.authserver.service;
+
+import com.hecttoy.authserver.dto.RefreshTokenRequest;
+import com.hecttoy.authserver.dto.TokenResponse;
+import com.hecttoy.authserver.exception.ServiceUnavailableException;
+import com.hecttoy.authserver.exception.TokenException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RefreshRequestCoalescerTest {
+
+    private static final RefreshTokenRequest REQUEST = RefreshTokenRequest.builder().refreshToken("token").build();
+
+    private AuthService authService;
+
+    private MeterRegistry meterRegistry;
+
+    private RefreshRequestCoalescer coalescer;
+
+    @BeforeEach
+    void setUp() {
+        authService = mock(AuthService.class);
+        meterRegistry = new SimpleMeterRegistry();
+        coalescer = new RefreshRequestCoalescer();
+        ReflectionTestUtils.setField(coalescer, "authService", authService);
+        ReflectionTestUtils.setField(coalescer, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(coalescer, "graceWindowMillis", 200L);
+        ReflectionTestUtils.setField(coalescer, "waitTimeoutMillis", 5000L);
+        coalescer.init();
+    }
+
+    @Test
+    void concurrentRefreshesShareOneRotation() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        TokenResponse rotated = TokenResponse.builder().refreshToken("rotated").build();
+        when(authService.refresh(any())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return rotated;
+        });
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<TokenResponse>> responses = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                responses.add(pool.submit(() -> coalescer.refresh(REQUEST)));
+            }
+            while (meterRegistry.get("auth.refresh.coalesced").counter().count() < 7) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            for (Future<TokenResponse> response : responses) {
+                assertThat(response.get(5, TimeUnit.SECONDS)).isSameAs(rotated);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        verify(authService, times(1)).refresh(any());
+    }
+
+    @Test
+    void repeatWithinGraceWindowReplaysResponse() throws Exception {
+        when(authService.refresh(any())).thenReturn(TokenResponse.builder().refreshToken("rotated").build());
+
+        TokenResponse first = coalescer.refresh(REQUEST);
+        assertThat(coalescer.refresh(REQUEST)).isSameAs(first);
+        verify(authService, times(1)).refresh(any());
+
+        while (coalescer.inFlight() > 0) {
+            Thread.sleep(10);
+        }
+        coalescer.refresh(REQUEST);
+        verify(authService, times(2)).refresh(any());
+    }
+
+    @Test
+    void failuresAreNotKept() {
+        when(authService.refresh(any())).thenThrow(new TokenException("Invalid refresh token"));
+
+        assertThatThrownBy(() -> coalescer.refresh(REQUEST)).isInstanceOf(TokenException.class);
+        assertThatThrownBy(() -> coalescer.refresh(REQUEST)).isInstanceOf(TokenException.class);
+
+        verify(authService, times(2)).refresh(any());
+        assertThat(coalescer.inFlight()).isZero();
+    }
+
+    @Test
+    void errorsReleaseWaitersAndAreNotKept() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(authService.refresh(any())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            throw new OutOfMemoryError("simulated");
+        });
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<TokenResponse> leader = pool.submit(() -> coalescer.refresh(REQUEST));
+            while (coalescer.inFlight() == 0) {
+                Thread.sleep(5);
+            }
+            Future<TokenResponse> waiter = pool.submit(() -> coalescer.refresh(REQUEST));
+            while (meterRegistry.get("auth.refresh.coalesced").counter().count() < 1) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(OutOfMemoryError.class);
+            assertThatThrownBy(() -> waiter.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(OutOfMemoryError.class);
+        } finally {
+            pool.shutdownNow();
+        }
+        assertThat(coalescer.inFlight()).isZero();
+    }
+
+    @Test
+    void waitersGiveUpAfterTheTimeout() throws Exception {
+        ReflectionTestUtils.setField(coalescer, "waitTimeoutMillis", 50L);
+        CountDownLatch release = new CountDownLatch(1);
+        when(authService.refresh(any())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return TokenResponse.builder().refreshToken("rotated").build();
+        });
+
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<TokenResponse> leader = pool.submit(() -> coalescer.refresh(REQUEST));
+            while (coalescer.inFlight() == 0) {
+                Thread.sleep(5);
+            }
+
+            assertThatThrownBy(() -> coalescer.refresh(REQUEST)).isInstanceOf(ServiceUnavailableException.class);
+
+            release.countDown();
+            assertThat(leader.get(5, TimeUnit.SECONDS).getRefreshToken()).isEqualTo("rotated");
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
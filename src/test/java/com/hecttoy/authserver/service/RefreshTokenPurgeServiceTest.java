@@ -0,0 +1,90 @@
+package com.hecttoy.authserver.service;
+
+import com.hecttoy.authserver.model.RefreshToken;
+import com.hecttoy.authserver.model.User;
+import com.hecttoy.authserver.repository.RefreshTokenRepository;
+import com.hecttoy.authserver.repository.UserRepository;
+import com.hecttoy.authserver.security.OpaqueToken;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("h2")
+class RefreshTokenPurgeServiceTest {
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private MeterRegistry meterRegistry;
+
+    private RefreshTokenPurgeService purgeService;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        purgeService = new RefreshTokenPurgeService();
+        ReflectionTestUtils.setField(purgeService, "refreshTokenRepository", refreshTokenRepository);
+        ReflectionTestUtils.setField(purgeService, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(purgeService, "chunkSize", 2);
+        purgeService.init();
+
+        user = userRepository.save(User.builder()
+            .username("alice")
+            .email("alice@example.com")
+            .password("hash")
+            .firstName("Alice")
+            .lastName("Example")
+            .build());
+    }
+
+    @Test
+    void purgesExpiredTokensInChunksAndKeepsUnexpiredRevokedOnes() {
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < 5; i++) {
+            saveToken(now.minusMinutes(1), false);
+        }
+        for (int i = 0; i < 2; i++) {
+            saveToken(now.minusMinutes(1), true);
+        }
+        for (int i = 0; i < 3; i++) {
+            saveToken(now.plusDays(1), true);
+        }
+        saveToken(now.plusDays(1), false);
+        saveToken(now.plusDays(1), false);
+
+        purgeService.purge();
+
+        assertThat(refreshTokenRepository.findAll())
+            .hasSize(5)
+            .allSatisfy(token -> assertThat(token.isExpired()).isFalse());
+        assertThat(refreshTokenRepository.findAll()).filteredOn(RefreshToken::getRevoked).hasSize(3);
+        assertThat(meterRegistry.get("auth.refresh.purge.rows").tag("reason", "expired").counter().count()).isEqualTo(5);
+        assertThat(meterRegistry.get("auth.refresh.purge.rows").tag("reason", "revoked").counter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("auth.refresh.purge.duration").timer().count()).isEqualTo(1);
+    }
+
+    private void saveToken(LocalDateTime expiryDate, boolean revoked) {
+        refreshTokenRepository.save(RefreshToken.builder()
+            .tokenHash(OpaqueToken.digest(OpaqueToken.generate()))
+            .user(user)
+            .deviceId("device")
+            .expiryDate(expiryDate)
+            .revoked(revoked)
+            .build());
+    }
+}
@@ -0,0 +1,106 @@
+package com.hecttoy.authserver.service;
+
+import com.hecttoy.authserver.dto.CreateTodoRequest;
+import com.hecttoy.authserver.dto.TodoResponse;
+import com.hecttoy.authserver.dto.UpdateTodoRequest;
+import com.hecttoy.authserver.exception.ResourceNotFoundException;
+import com.hecttoy.authserver.model.Role;
+import com.hecttoy.authserver.model.User;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+    + "com.hecttoy.authserver.service.TodoServiceTest$SqlRecorder")
+@ActiveProfiles("h2")
+@Import(TodoService.class)
+class TodoServiceTest {
+
+    @Autowired
+    private TodoService todoService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @BeforeEach
+    void setUp() {
+        Role role = entityManager.persist(Role.builder().name("USER").build());
+        entityManager.persist(User.builder()
+            .username("alice")
+            .email("alice@example.com")
+            .password("hash")
+            .firstName("Alice")
+            .lastName("Example")
+            .roles(Set.of(role))
+            .build());
+        entityManager.flush();
+        entityManager.clear();
+        SqlRecorder.STATEMENTS.clear();
+    }
+
+    @Test
+    void createTodoLooksUpOnlyTheUserId() {
+        todoService.createTodo("alice", CreateTodoRequest.builder().title("Write tests").build());
+        entityManager.flush();
+
+        assertThat(SqlRecorder.selectsFrom("users")).singleElement()
+            .satisfies(sql -> assertThat(sql).doesNotContain("password", "roles"));
+        assertThat(SqlRecorder.STATEMENTS).noneMatch(sql -> sql.contains("roles"));
+    }
+
+    @Test
+    void todoReadsAndWritesNeverLoadRoles() {
+        Long id = todoService.createTodo("alice", CreateTodoRequest.builder().title("Write tests").build()).getId();
+        entityManager.flush();
+        entityManager.clear();
+
+        todoService.getTodo("alice", id);
+        List<TodoResponse> all = todoService.getAllTodos("alice");
+        todoService.getCompletedTodos("alice", false);
+        todoService.updateTodo("alice", id, UpdateTodoRequest.builder().completed(true).build());
+        todoService.deleteTodo("alice", id);
+        entityManager.flush();
+
+        assertThat(all).extracting(TodoResponse::getTitle).containsExactly("Write tests");
+        assertThat(SqlRecorder.selectsFrom("users")).hasSize(6)
+            .allSatisfy(sql -> assertThat(sql).doesNotContain("password"));
+        assertThat(SqlRecorder.STATEMENTS).noneMatch(sql -> sql.contains("roles"));
+    }
+
+    @Test
+    void unknownUserIsNotFound() {
+        assertThatThrownBy(() -> todoService.getAllTodos("nobody"))
+            .isInstanceOf(ResourceNotFoundException.class)
+            .hasMessage("User not found");
+    }
+
+    public static class SqlRecorder implements StatementInspector {
+
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql.toLowerCase(Locale.ROOT));
+            return sql;
+        }
+
+        static List<String> selectsFrom(String table) {
+            return STATEMENTS.stream()
+                .filter(sql -> sql.startsWith("select") && sql.matches("(?s).*\\bfrom " + table + "\\b.*"))
+                .toList();
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.hecttoy.authserver.service;
+
+import com.hecttoy.authserver.dto.IntrospectionResponse;
+import com.hecttoy.authserver.dto.LoginRequest;
+import com.hecttoy.authserver.dto.LogoutRequest;
+import com.hecttoy.authserver.dto.RegisterRequest;
+import com.hecttoy.authserver.dto.TokenResponse;
+import com.hecttoy.authserver.repository.UserRepository;
+import com.hecttoy.authserver.security.AccessTokenDenylist;
+import com.hecttoy.authserver.security.JwtKeyRing;
+import com.hecttoy.authserver.security.JwtTokenProvider;
+import com.hecttoy.authserver.security.PasswordHashingExecutor;
+import com.hecttoy.authserver.security.TokenVersionCache;
+import com.hecttoy.authserver.security.VerifiedToken;
+import com.hecttoy.authserver.security.VerifiedTokenCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("h2")
+@Import({TokenIntrospectionService.class, AuthService.class, JwtTokenProvider.class, JwtKeyRing.class,
+    VerifiedTokenCache.class, AccessTokenRevocationService.class, AccessTokenDenylist.class, DefaultRole.class,
+    UserExistenceFilter.class, PasswordHashingExecutor.class, TokenVersionCache.class,
+    TokenIntrospectionServiceTest.TestConfig.class})
+class TokenIntrospectionServiceTest {
+
+    @Autowired
+    private TokenIntrospectionService tokenIntrospectionService;
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private JwtTokenProvider jwtTokenProvider;
+
+    @Autowired
+    private AccessTokenDenylist accessTokenDenylist;
+
+    @Autowired
+    private AccessTokenRevocationService accessTokenRevocationService;
+
+    @BeforeEach
+    void setUp() {
+        authService.register(RegisterRequest.builder()
+            .username("alice")
+            .email("alice@example.com")
+            .password("Password123!")
+            .firstName("Alice")
+            .lastName("Example")
+            .build());
+        userRepository.flush();
+    }
+
+    @Test
+    void batchReturnsOneResultPerTokenInOrder() {
+        TokenResponse tokens = login("laptop");
+
+        List<IntrospectionResponse> results = tokenIntrospectionService.introspect(
+            List.of(tokens.getAccessToken(), "not-a-token", tokens.getRefreshToken(), "a.b.c"));
+
+        assertThat(results).extracting(IntrospectionResponse::isActive).containsExactly(true, false, true, false);
+        assertThat(results.get(0).getTokenType()).isEqualTo("access_token");
+        assertThat(results.get(0).getUsername()).isEqualTo("alice");
+        assertThat(results.get(0).getDeviceId()).isEqualTo("laptop");
+        assertThat(results.get(0).getRoles()).containsExactly("USER");
+        assertThat(results.get(2).getTokenType()).isEqualTo("refresh_token");
+        assertThat(results.get(2).getExp()).isGreaterThan(results.get(0).getExp());
+        assertThat(results.get(1).getRevoked()).isNull();
+        assertThat(meterRegistry.counter("auth.introspect.tokens", "result", "active").count()).isEqualTo(2);
+    }
+
+    @Test
+    void loggingOutRevokesTheSessionsAccessToken() {
+        TokenResponse laptop = login("laptop");
+        TokenResponse phone = login("phone");
+
+        authService.logout(LogoutRequest.builder().refreshToken(laptop.getRefreshToken()).build(), null);
+
+        List<IntrospectionResponse> results = tokenIntrospectionService.introspect(List.of(
+            laptop.getAccessToken(), laptop.getRefreshToken(), phone.getAccessToken()));
+
+        assertThat(results.get(0).isActive()).isFalse();
+        assertThat(results.get(0).getRevoked()).isTrue();
+        assertThat(results.get(1).isActive()).isFalse();
+        assertThat(results.get(1).getRevoked()).isTrue();
+        assertThat(results.get(2).isActive()).isTrue();
+    }
+
+    @Test
+    void revokedAccessTokenStaysRevokedAfterARebuild() {
+        TokenResponse laptop = login("laptop");
+        TokenResponse phone = login("phone");
+        VerifiedToken accessToken = jwtTokenProvider.verifyToken(laptop.getAccessToken());
+
+        accessTokenRevocationService.revoke(accessToken);
+        accessTokenDenylist.clear();
+        accessTokenRevocationService.rebuild();
+
+        assertThat(accessTokenDenylist.contains(accessToken.jti())).isTrue();
+        assertThat(tokenIntrospectionService.introspect(laptop.getAccessToken()).getRevoked()).isTrue();
+        assertThat(tokenIntrospectionService.introspect(laptop.getRefreshToken()).isActive()).isTrue();
+        assertThat(tokenIntrospectionService.introspect(phone.getAccessToken()).isActive()).isTrue();
+    }
+
+    @Test
+    void changingRolesRevokesAccessTokensIssuedBefore() {
+        TokenResponse before = login("laptop");
+        Long userId = userRepository.findByUsername("alice").orElseThrow().getId();
+
+        authService.updateRoles(userId, Set.of("USER"));
+
+        assertThat(tokenIntrospectionService.introspect(before.getAccessToken()).getRevoked()).isTrue();
+        assertThat(tokenIntrospectionService.introspect(login("laptop").getAccessToken()).isActive()).isTrue();
+    }
+
+    private TokenResponse login(String deviceId) {
+        return authService.login(LoginRequest.builder()
+            .email("alice@example.com")
+            .password("Password123!")
+            .deviceId(deviceId)
+            .build());
+    }
+
+    @TestConfiguration
+    static class TestConfig {
+
+        @Bean
+        PasswordEncoder passwordEncoder() {
+            return new BCryptPasswordEncoder(4);
+        }
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+}